@@ -1,6 +1,7 @@
 package de.tub.sense.daq.config;
 
 import de.tub.sense.daq.config.file.ConfigurationFile;
+import de.tub.sense.daq.config.file.ConnectionSettings;
 import de.tub.sense.daq.config.file.Equipment;
 import de.tub.sense.daq.config.file.Signal;
 import de.tub.sense.daq.config.xml.*;
@@ -130,11 +131,8 @@ public class ConfigInitializer implements CommandLineRunner {
         configService.createEquipment(
                 equipment.getName(),
                 HANDLER_CLASS_NAME,
-                refreshInterval,
                 aliveTagInterval,
-                equipment.getConnectionSettings().getAddress(),
-                equipment.getConnectionSettings().getPort(),
-                equipment.getConnectionSettings().getUnitID());
+                toEquipmentAddress(equipment, refreshInterval));
         for(Signal signal : equipment.getSignals()) {
             createTagFromSignal(signal, equipment.getName());
         }
@@ -151,11 +149,7 @@ public class ConfigInitializer implements CommandLineRunner {
         if (log.isInfoEnabled()) {
             log.info("Updating equipment {} with id {}...", updatedEquipment.getName(), currentEquipmentUnit.getId());
         }
-        currentEquipmentUnit.setEquipmentAddress(new EquipmentAddress(
-                updatedEquipment.getConnectionSettings().getAddress(),
-                updatedEquipment.getConnectionSettings().getPort(),
-                updatedEquipment.getConnectionSettings().getUnitID(),
-                updatedEquipment.getRefreshInterval()));
+        currentEquipmentUnit.setEquipmentAddress(toEquipmentAddress(updatedEquipment, updatedEquipment.getRefreshInterval()));
         currentEquipmentUnit.setAliveTagInterval(updatedEquipment.getAliveTagInterval() != 0 ?
                 updatedEquipment.getAliveTagInterval() : currentEquipmentUnit.getAliveTagInterval());
         configService.updateEquipment(currentEquipmentUnit);
@@ -182,6 +176,29 @@ public class ConfigInitializer implements CommandLineRunner {
         }
     }
 
+    /**
+     * Creates the equipment address for the C2mon server from the connection settings of an equipment
+     *
+     * @param equipment       from the config file
+     * @param refreshInterval of the equipment
+     * @return equipment address with all connection settings
+     */
+    private EquipmentAddress toEquipmentAddress(Equipment equipment, int refreshInterval) {
+        ConnectionSettings connectionSettings = equipment.getConnectionSettings();
+        EquipmentAddress equipmentAddress = new EquipmentAddress(connectionSettings.getAddress(),
+                connectionSettings.getPort(), connectionSettings.getUnitID(), refreshInterval);
+        equipmentAddress.setPipelineDepth(connectionSettings.getPipelineDepth());
+        equipmentAddress.setTransport(connectionSettings.getTransport());
+        equipmentAddress.setMaxConnections(connectionSettings.getMaxConnections());
+        equipmentAddress.setWriteWindow(connectionSettings.getWriteWindow());
+        equipmentAddress.setTimeout(connectionSettings.getTimeout());
+        equipmentAddress.setMaxRetries(connectionSettings.getMaxRetries());
+        equipmentAddress.setMinPollInterval(equipment.getMinPollInterval());
+        equipmentAddress.setMaxPollInterval(equipment.getMaxPollInterval());
+        equipmentAddress.setReadCacheTtl(equipment.getReadCacheTtl());
+        return equipmentAddress;
+    }
+
     /**
      * Updates a read signal. Needs the updated signal from config file, and the current corresponding
      * data tag from the C2mon server
@@ -197,6 +214,13 @@ public class ConfigInitializer implements CommandLineRunner {
 
         dataTag.setAddress(new HardwareAddress(signal.getModbus().getStartAddress(), getCount(signal.getType()),
                 signal.getModbus().getRegister(), signal.getOffset(), signal.getMultiplier(), signal.getThreshold(), signal.getModbus().getBitNumber()));
+        dataTag.getAddress().setArrayLength(signal.getModbus().getArrayLength());
+        dataTag.getAddress().setPollInterval(signal.getPollInterval());
+        dataTag.getAddress().setPriority(signal.getPriority());
+        dataTag.getAddress().setMinValue(signal.getMin());
+        dataTag.getAddress().setMaxValue(signal.getMax());
+        dataTag.getAddress().setDeadband(signal.getDeadband());
+        dataTag.getAddress().setDeadbandMode(signal.getDeadbandMode());
         configService.updateDataTag(dataTag);
     }
 
@@ -245,11 +269,14 @@ public class ConfigInitializer implements CommandLineRunner {
         if (signal.getModbus().getType().equalsIgnoreCase("read")) {
             configService.createDataTag(equipmentName, signal.getName(), signal.getType(),
                     signal.getModbus().getStartAddress(), signal.getModbus().getRegister(), getCount(signal.getType()),
-                    signal.getOffset(), signal.getMultiplier(), signal.getThreshold(), signal.getModbus().getBitNumber());
+                    signal.getOffset(), signal.getMultiplier(), signal.getThreshold(), signal.getModbus().getBitNumber(),
+                    signal.getModbus().getArrayLength(), signal.getPollInterval(), signal.getPriority(),
+                    signal.getMin(), signal.getMax(), signal.getDeadband(), signal.getDeadbandMode());
         } else if (signal.getModbus().getType().equalsIgnoreCase("write")) {
             configService.createCommandTag(equipmentName, signal.getName(), signal.getType(),
                     signal.getModbus().getStartAddress(), signal.getModbus().getRegister(), getCount(signal.getType()),
-                    signal.getMin(), signal.getMax(), signal.getModbus().getBitNumber());
+                    signal.getMin(), signal.getMax(), signal.getModbus().getBitNumber(),
+                    signal.getModbus().getReadbackAddress(), signal.getModbus().getReadbackCount());
         } else {
             log.error("Unrecognized modbus type {} for signal {}", signal.getModbus().getType(), signal.getName());
         }
@@ -269,6 +296,8 @@ public class ConfigInitializer implements CommandLineRunner {
         commandTag.setDataType(signal.getType());
         commandTag.setAddress(new HardwareAddress(signal.getModbus().getStartAddress(), getCount(signal.getType()),
                 signal.getModbus().getRegister(), signal.getMin(), signal.getMax(), signal.getModbus().getBitNumber()));
+        commandTag.getAddress().setReadbackAddress(signal.getModbus().getReadbackAddress());
+        commandTag.getAddress().setReadbackCount(signal.getModbus().getReadbackCount());
         configService.updateCommandTag(commandTag);
     }
 
@@ -96,8 +96,11 @@ public class ConfigService {
         cern.c2mon.shared.client.configuration.api.tag.DataTag updatedTag = cern.c2mon.shared.client.configuration.api.tag.DataTag.update(dataTag.getId())
                 .address(new DataTagAddress(getSimpleHardwareAddress(dataTag.getAddress().getStartAddress(),
                         dataTag.getAddress().getValueCount(), dataTag.getAddress().getType(), dataTag.getAddress().getOffset(),
-                        dataTag.getAddress().getMultiplier(), dataTag.getAddress().getThreshold(), dataTag.getAddress().getBitNumber())))
-                .dataType(dataTypeClass(dataTag.getDataType()))
+                        dataTag.getAddress().getMultiplier(), dataTag.getAddress().getThreshold(), dataTag.getAddress().getBitNumber(),
+                        dataTag.getAddress().getArrayLength(), dataTag.getAddress().getPollInterval(), dataTag.getAddress().getPriority(),
+                        dataTag.getAddress().getMinValue(), dataTag.getAddress().getMaxValue(), dataTag.getAddress().getDeadband(),
+                        dataTag.getAddress().getDeadbandMode())))
+                .dataType(dataTypeClass(dataTag.getDataType(), dataTag.getAddress().getArrayLength()))
                 .build();
         configurationService.updateDataTag(updatedTag);
     }
@@ -117,7 +120,8 @@ public class ConfigService {
                 .maximum(commandTag.getAddress().getMaxValue())
                 .hardwareAddress(getSimpleHardwareAddress(commandTag.getAddress().getStartAddress(),
                         commandTag.getAddress().getValueCount(), commandTag.getAddress().getType(),
-                        commandTag.getAddress().getMinValue(), commandTag.getAddress().getMaxValue(), commandTag.getAddress().getBitNumber()))
+                        commandTag.getAddress().getMinValue(), commandTag.getAddress().getMaxValue(), commandTag.getAddress().getBitNumber(),
+                        commandTag.getAddress().getReadbackAddress(), commandTag.getAddress().getReadbackCount()))
                 .dataType(dataTypeClass(commandTag.getDataType()))
                 .build();
         configurationService.updateCommandTag(updatedTag);
@@ -131,7 +135,7 @@ public class ConfigService {
     protected void updateEquipment(EquipmentUnit equipmentUnit) {
         EquipmentAddress address = equipmentUnit.getEquipmentAddress();
         Equipment equipment = Equipment.update(equipmentUnit.getId())
-                .address(getEquipmentAddress(address.getHost(), address.getPort(), address.getUnitId(), address.getRefreshInterval()))
+                .address(getEquipmentAddress(address))
                 .aliveInterval(equipmentUnit.getAliveTagInterval())
                 .build();
         configurationService.updateEquipment(equipment);
@@ -202,13 +206,25 @@ public class ConfigService {
      * @param unitId           of the equipment
      */
     protected void createEquipment(String equipmentName, String handlerClassName, int refreshInterval, int aliveTagInterval, String host, long port, int unitId) {
+        createEquipment(equipmentName, handlerClassName, aliveTagInterval, new EquipmentAddress(host, (int) port, unitId, refreshInterval));
+    }
+
+    /**
+     * Create a equipment for an existing process
+     *
+     * @param equipmentName    of the equipment
+     * @param handlerClassName of the message handler for the equipment
+     * @param aliveTagInterval to send an alive tag in millis
+     * @param equipmentAddress with the connection settings of the equipment
+     */
+    protected void createEquipment(String equipmentName, String handlerClassName, int aliveTagInterval, EquipmentAddress equipmentAddress) {
         if (log.isDebugEnabled()) {
             log.debug("Creating equipment {} for process {} with handlerClass {}", equipmentName, PROCESS_NAME, handlerClassName);
         }
         Equipment equipmentToCreate = Equipment.create(equipmentName, handlerClassName)
                 .aliveTag(AliveTag.create(equipmentName + ":ALIVE").build(), aliveTagInterval)
                 .statusTag(StatusTag.create(equipmentName + ":STATUS").build())
-                .address(getEquipmentAddress(host, port, unitId, refreshInterval))
+                .address(getEquipmentAddress(equipmentAddress))
                 .build();
 
         ConfigurationReport report = configurationService.createEquipment(PROCESS_NAME, equipmentToCreate);
@@ -266,30 +282,43 @@ public class ConfigService {
      * @param startAddress  of the related register
      * @param registerType  of the related register
      * @param valueCount    of the related register
+     * @param arrayLength   number of consecutive values published as one array, 0 for a single value
+     * @param pollInterval  of the tag in milliseconds, 0 to poll it with the refresh interval of the equipment
+     * @param priority      of the tag, tags with a lower priority are deferred first if polling falls behind
+     * @param min           of the value, used by a deadband in percent of the range
+     * @param max           of the value, used by a deadband in percent of the range
+     * @param deadband      minimum change of the value before it is published, 0 to publish every change
+     * @param deadbandMode  absolute, range or value, see {@link de.tub.sense.daq.modbus.Deadband}
      */
     protected void createDataTag(String equipmentName, String tagName, String datatype, int startAddress,
-                                 String registerType, int valueCount, double offset, double multiplier, double threshold, int bitNumber) {
+                                 String registerType, int valueCount, double offset, double multiplier, double threshold, int bitNumber,
+                                 int arrayLength, int pollInterval, int priority, double min, double max, double deadband,
+                                 String deadbandMode) {
         if (bitNumber < 0 || bitNumber > 15) {
             throw new IllegalArgumentException("Bitnumber for tag " + tagName + " is " + bitNumber + " but it has to be in the interval [0, 15]");
         }
-        configurationService.createDataTag(equipmentName, equipmentName + "/" + tagName, dataTypeClass(datatype),
-                new DataTagAddress(getSimpleHardwareAddress(startAddress, valueCount, registerType, offset, multiplier, threshold, bitNumber)));
+        configurationService.createDataTag(equipmentName, equipmentName + "/" + tagName, dataTypeClass(datatype, arrayLength),
+                new DataTagAddress(getSimpleHardwareAddress(startAddress, valueCount, registerType, offset, multiplier, threshold, bitNumber,
+                        arrayLength, pollInterval, priority, min, max, deadband, deadbandMode)));
     }
 
     /**
      * Create a command tag for a given equipment
      *
-     * @param equipmentName of the equipment
-     * @param tagName       of the tag
-     * @param datatype      of the tag
-     * @param startAddress  of the related register
-     * @param registerType  of the related register
-     * @param valueCount    of the related register
-     * @param min           of the related register
-     * @param max           of the related register
+     * @param equipmentName   of the equipment
+     * @param tagName         of the tag
+     * @param datatype        of the tag
+     * @param startAddress    of the related register
+     * @param registerType    of the related register
+     * @param valueCount      of the related register
+     * @param min             of the related register
+     * @param max             of the related register
+     * @param readbackAddress first holding register read back with every write
+     * @param readbackCount   of the holding registers read back, 0 to read nothing back
      */
     protected void createCommandTag(String equipmentName, String tagName, String datatype, int startAddress,
-                                    String registerType, int valueCount, double min, double max, int bitNumber) {
+                                    String registerType, int valueCount, double min, double max, int bitNumber,
+                                    int readbackAddress, int readbackCount) {
         if (min == max && max == 0) {
             throw new IllegalArgumentException("Minimum and maximum for command tag " + tagName + " is not set." +
                     " For a boolean it has to be [0, 1], for any other data type it is up to you. You can specify minimum and maximum for any signal in the config file");
@@ -302,7 +331,8 @@ public class ConfigService {
         String rbacDevice = "foo"; // Must at least contain one non white space character, not used at SENSE
         String rbacProperty = "foo"; // Must at least contain one non white space character, not used at SENSE
         cern.c2mon.shared.client.configuration.api.tag.CommandTag commandTag = cern.c2mon.shared.client.configuration.api.tag.CommandTag.create(equipmentName + "/" + tagName,
-                dataTypeClass(datatype), getSimpleHardwareAddress(startAddress, valueCount, registerType, min, max, bitNumber),
+                dataTypeClass(datatype), getSimpleHardwareAddress(startAddress, valueCount, registerType, min, max, bitNumber,
+                        readbackAddress, readbackCount),
                 clientTimeout, execTimeout, sourceTimeout, sourceRetries, rbacClass, rbacDevice, rbacProperty)
                 .minimum(min)
                 .maximum(max)
@@ -320,39 +350,59 @@ public class ConfigService {
      * @param offset       of the value
      * @param multiplier   of the value
      * @param threshold    of the value
+     * @param arrayLength  number of consecutive values published as one array
+     * @param pollInterval of the value in milliseconds
+     * @param priority     of the value when polling falls behind
+     * @param min          of the value
+     * @param max          of the value
+     * @param deadband     minimum change of the value before it is published
+     * @param deadbandMode of the deadband
      * @return SimpleHardwareAddressImpl object for the given arguments, which can be sent to the C2mon server
      */
-    private SimpleHardwareAddressImpl getSimpleHardwareAddress(int startAddress, int valueCount, String registerType, double offset, double multiplier, double threshold, int bitNumber) {
+    private SimpleHardwareAddressImpl getSimpleHardwareAddress(int startAddress, int valueCount, String registerType, double offset, double multiplier, double threshold, int bitNumber,
+                                                               int arrayLength, int pollInterval, int priority, double min, double max,
+                                                               double deadband, String deadbandMode) {
         return new SimpleHardwareAddressImpl("{\"startAddress\":" + startAddress + ",\"readValueCount\":"
-                + valueCount + ",\"readingType\":\"" + registerType + "\", \"value_offset\":" + offset + ",\"value_multiplier\":" + multiplier + ",\"value_threshold\":" + threshold + ",\"bitNumber\":" + bitNumber + "}");
+                + valueCount + ",\"readingType\":\"" + registerType + "\", \"value_offset\":" + offset + ",\"value_multiplier\":" + multiplier + ",\"value_threshold\":" + threshold + ",\"bitNumber\":" + bitNumber
+                + ",\"arrayLength\":" + arrayLength + ",\"pollInterval\":" + pollInterval + ",\"priority\":" + priority
+                + ",\"minimum\":" + min + ",\"maximum\":" + max + ",\"value_deadband\":" + deadband
+                + (deadbandMode != null ? ",\"deadbandMode\":\"" + deadbandMode + "\"" : "") + "}");
     }
 
     /**
      * Parses a register with start address, value count, register type, minimum and maximum to a SimpleHardwareAddressImplementation
      *
-     * @param startAddress of the register
-     * @param valueCount   of the register
-     * @param registerType of the register
-     * @param min          of the value
-     * @param max          of the value
+     * @param startAddress    of the register
+     * @param valueCount      of the register
+     * @param registerType    of the register
+     * @param min             of the value
+     * @param max             of the value
+     * @param readbackAddress first holding register read back with every write
+     * @param readbackCount   of the holding registers read back
      * @return SimpleHardwareAddressImpl object for the given arguments, which can be sent to the C2mon server
      */
-    private SimpleHardwareAddressImpl getSimpleHardwareAddress(int startAddress, int valueCount, String registerType, double min, double max, int bitNumber) {
+    private SimpleHardwareAddressImpl getSimpleHardwareAddress(int startAddress, int valueCount, String registerType, double min, double max, int bitNumber,
+                                                               int readbackAddress, int readbackCount) {
         return new SimpleHardwareAddressImpl("{\"startAddress\":" + startAddress + ",\"writeValueCount\":"
-                + valueCount + ",\"writingType\":\"" + registerType + "\", \"minimum\":" + min + ",\"maximum\":" + max + ",\"bitNumber\":" + bitNumber + "}");
+                + valueCount + ",\"writingType\":\"" + registerType + "\", \"minimum\":" + min + ",\"maximum\":" + max + ",\"bitNumber\":" + bitNumber
+                + ",\"readbackAddress\":" + readbackAddress + ",\"readbackCount\":" + readbackCount + "}");
     }
 
     /**
-     * Parses a equipment address with host port unit id and refresh interval to a valid equipment address string
+     * Parses a equipment address with host port unit id, refresh interval and connection settings to a valid
+     * equipment address string
      *
-     * @param host            of the equipment
-     * @param port            of the equipment
-     * @param unitId          of the equipment
-     * @param refreshInterval of the equipment
+     * @param address of the equipment
      * @return valid equipment address hashmap string
      */
-    private String getEquipmentAddress(String host, long port, int unitId, int refreshInterval) {
-        return "{\"host\":\"" + host + "\",\"port\":" + port + ",\"unitID\":" + unitId + ",\"refreshInterval\":" + refreshInterval + "}";
+    private String getEquipmentAddress(EquipmentAddress address) {
+        return "{\"host\":\"" + address.getHost() + "\",\"port\":" + address.getPort() + ",\"unitID\":" + address.getUnitId()
+                + ",\"refreshInterval\":" + address.getRefreshInterval() + ",\"pipelineDepth\":" + address.getPipelineDepth()
+                + ",\"maxConnections\":" + address.getMaxConnections() + ",\"writeWindow\":" + address.getWriteWindow()
+                + ",\"timeout\":" + address.getTimeout() + ",\"maxRetries\":" + address.getMaxRetries()
+                + ",\"minPollInterval\":" + address.getMinPollInterval() + ",\"maxPollInterval\":" + address.getMaxPollInterval()
+                + ",\"readCacheTtl\":" + address.getReadCacheTtl()
+                + (address.getTransport() != null ? ",\"transport\":\"" + address.getTransport() + "\"" : "") + "}";
     }
 
     /**
@@ -366,6 +416,34 @@ public class ConfigService {
         return processes;
     }
 
+    /**
+     * Convert a data type string to the data type class of a tag, array tags get the primitive array class
+     *
+     * @param datatype    as string
+     * @param arrayLength of the tag, 0 for a single value
+     * @return datatype as class, e.g. float[] for an array of float32
+     */
+    private Class<?> dataTypeClass(String datatype, int arrayLength) {
+        Class<?> type = dataTypeClass(datatype);
+        if (arrayLength <= 0) {
+            return type;
+        }
+        if (type == Boolean.class) {
+            return boolean[].class;
+        } else if (type == Byte.class) {
+            return byte[].class;
+        } else if (type == Short.class) {
+            return short[].class;
+        } else if (type == Integer.class) {
+            return int[].class;
+        } else if (type == Long.class) {
+            return long[].class;
+        } else if (type == Float.class) {
+            return float[].class;
+        }
+        return double[].class;
+    }
+
     /**
      * Convert a data type string to the corresponding data type class
      *
@@ -18,5 +18,11 @@ public class ConnectionSettings {
     private String address;
     private int port;
     private int unitID;
+    private int pipelineDepth;
+    private String transport;
+    private int maxConnections;
+    private int writeWindow;
+    private int timeout;
+    private int maxRetries = 2;
 
 }
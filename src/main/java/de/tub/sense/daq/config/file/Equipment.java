@@ -19,6 +19,9 @@ public class Equipment {
     private String name;
     private String type;
     private int refreshInterval;
+    private int minPollInterval;
+    private int maxPollInterval;
+    private int readCacheTtl;
     private int aliveTagInterval;
     private ConnectionSettings connectionSettings;
     private ArrayList<Signal> signals;
@@ -20,5 +20,8 @@ public class Modbus {
     private int count;
     private int startAddress;
     private int bitNumber;
+    private int arrayLength;
+    private int readbackAddress;
+    private int readbackCount;
 
 }
@@ -24,4 +24,8 @@ public class Signal {
     private double offset;
     private double multiplier;
     private double threshold;
+    private double deadband;
+    private String deadbandMode;
+    private int pollInterval;
+    private int priority;
 }
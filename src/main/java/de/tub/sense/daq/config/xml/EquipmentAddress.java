@@ -29,6 +29,15 @@ public class EquipmentAddress {
     private int delay;
     private int refreshInterval;
     private String timeUnit;
+    private int pipelineDepth;
+    private String transport;
+    private int maxConnections;
+    private int writeWindow;
+    private int timeout;
+    private int maxRetries = 2;
+    private int minPollInterval;
+    private int maxPollInterval;
+    private int readCacheTtl;
 
     public EquipmentAddress(String host, int port, int unitId, int refreshInterval) {
         this.host = host;
@@ -62,6 +71,33 @@ public class EquipmentAddress {
                     case "refreshInterval":
                         equipmentAddress.setRefreshInterval((int) entry.getValue());
                         break;
+                    case "pipelineDepth":
+                        equipmentAddress.setPipelineDepth((int) entry.getValue());
+                        break;
+                    case "transport":
+                        equipmentAddress.setTransport(String.valueOf(entry.getValue()));
+                        break;
+                    case "maxConnections":
+                        equipmentAddress.setMaxConnections((int) entry.getValue());
+                        break;
+                    case "writeWindow":
+                        equipmentAddress.setWriteWindow((int) entry.getValue());
+                        break;
+                    case "timeout":
+                        equipmentAddress.setTimeout((int) entry.getValue());
+                        break;
+                    case "maxRetries":
+                        equipmentAddress.setMaxRetries((int) entry.getValue());
+                        break;
+                    case "minPollInterval":
+                        equipmentAddress.setMinPollInterval((int) entry.getValue());
+                        break;
+                    case "maxPollInterval":
+                        equipmentAddress.setMaxPollInterval((int) entry.getValue());
+                        break;
+                    case "readCacheTtl":
+                        equipmentAddress.setReadCacheTtl((int) entry.getValue());
+                        break;
                     default:
                         log.warn("Unrecognized equipment address key: {}", entry.getKey());
                         break;
@@ -38,7 +38,17 @@ public class HardwareAddress {
     private double offset;
     private double multiplier;
     private double threshold;
+    /**
+     * Minimum change of a data tag before it is published, its unit depends on the deadband mode
+     */
+    private double deadband;
+    private String deadbandMode;
     private int bitNumber;
+    private int arrayLength;
+    private int pollInterval;
+    private int priority;
+    private int readbackAddress;
+    private int readbackCount;
 
     public HardwareAddress(int startAddress, int valueCount, String type, double minValue, double maxValue, int bitNumber) {
         this.startAddress = startAddress;
@@ -92,9 +102,30 @@ public class HardwareAddress {
                     case "value_multiplier":
                         hardwareAddress.setMultiplier(Double.parseDouble(entry.getValue().toString()));
                         break;
+                    case "arrayLength":
+                        hardwareAddress.setArrayLength(Integer.parseInt(entry.getValue().toString()));
+                        break;
+                    case "pollInterval":
+                        hardwareAddress.setPollInterval(Integer.parseInt(entry.getValue().toString()));
+                        break;
+                    case "priority":
+                        hardwareAddress.setPriority(Integer.parseInt(entry.getValue().toString()));
+                        break;
+                    case "readbackAddress":
+                        hardwareAddress.setReadbackAddress(Integer.parseInt(entry.getValue().toString()));
+                        break;
+                    case "readbackCount":
+                        hardwareAddress.setReadbackCount(Integer.parseInt(entry.getValue().toString()));
+                        break;
                     case "value_threshold":
                         hardwareAddress.setThreshold(Double.parseDouble(entry.getValue().toString()));
                         break;
+                    case "value_deadband":
+                        hardwareAddress.setDeadband(Double.parseDouble(entry.getValue().toString()));
+                        break;
+                    case "deadbandMode":
+                        hardwareAddress.setDeadbandMode(String.valueOf(entry.getValue()));
+                        break;
                     default:
                         log.warn("Unrecognized hardware address key: {}", entry.getKey());
                         break;
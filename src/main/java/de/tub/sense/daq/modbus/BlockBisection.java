@@ -0,0 +1,139 @@
+package de.tub.sense.daq.modbus;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Bisects a block the device rejected until the rejected tags are isolated. The blocking poll waits for the reads of
+ * the halves on its own thread, the asynchronous poll chains the futures of the reads, so no shared thread waits for
+ * the device. The values of halves which can be read are collected for publishing, single tags which are still
+ * rejected are collected for the quarantine. If both halves can be read, the unused registers between them caused the
+ * illegal data address and are marked in the device profile, or the block was too large for an illegal data value
+ * and the device profile lowers the registers per request. Halves failing for other reasons, e.g. a busy device, are
+ * collected to be skipped until the next refresh.
+ *
+ * @created 18/10/2026 - 17:10
+ * @project DAQConfigLoader
+ */
+
+public class BlockBisection {
+
+    private final ModbusTCPService modbusTCPService;
+    /**
+     * Executor the reads of the halves are handled on, null to wait for them on the calling thread
+     */
+    private final Executor executor;
+
+    /**
+     * Halves which could be read with their raw register or bit values
+     */
+    @Getter
+    private final Map<ReadBlock, int[]> read = new LinkedHashMap<>();
+
+    /**
+     * Reasons the device rejected the isolated tags, by tag id
+     */
+    @Getter
+    private final Map<Long, String> rejected = new LinkedHashMap<>();
+
+    /**
+     * Halves which could not be read for other reasons than being rejected
+     */
+    @Getter
+    private final List<ReadBlock> failed = new ArrayList<>();
+
+    private BlockBisection(ModbusTCPService modbusTCPService, Executor executor) {
+        this.modbusTCPService = modbusTCPService;
+        this.executor = executor;
+    }
+
+    /**
+     * Bisect a block the device rejected, waiting for the reads of the halves on the calling thread
+     *
+     * @param modbusTCPService to read the halves with
+     * @param block            which was rejected
+     * @param pendingRead      failed read request of the block
+     * @return outcome when all rejected tags are isolated
+     */
+    public static BlockBisection isolate(ModbusTCPService modbusTCPService, ReadBlock block, CompletableFuture<int[]> pendingRead) {
+        BlockBisection bisection = new BlockBisection(modbusTCPService, null);
+        bisection.bisect(block, pendingRead);
+        return bisection;
+    }
+
+    /**
+     * Bisect a block the device rejected by chaining the reads of the halves
+     *
+     * @param modbusTCPService to read the halves with
+     * @param block            which was rejected
+     * @param pendingRead      failed read request of the block
+     * @param executor         to handle the reads of the halves on, not the thread of the transport
+     * @return future completed with the outcome when all rejected tags are isolated
+     */
+    public static CompletableFuture<BlockBisection> isolateAsync(ModbusTCPService modbusTCPService, ReadBlock block,
+                                                                 CompletableFuture<int[]> pendingRead, Executor executor) {
+        BlockBisection bisection = new BlockBisection(modbusTCPService, executor);
+        return bisection.bisect(block, pendingRead).thenApply(ignored -> bisection);
+    }
+
+    private CompletableFuture<Void> bisect(ReadBlock block, CompletableFuture<int[]> pendingRead) {
+        if (block.getMembers().size() == 1) {
+            synchronized (this) {
+                rejected.put(block.getMembers().get(0).getTagId(), ReadFailure.causeOf(pendingRead).getMessage());
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        List<ReadBlock> halves = block.split();
+        List<CompletableFuture<int[]>> pendingHalves = new ArrayList<>(halves.size());
+        for (ReadBlock half : halves) {
+            pendingHalves.add(modbusTCPService.readBlockAsync(half));
+        }
+        if (executor == null) {
+            return collectHalves(block, pendingRead, halves, pendingHalves);
+        }
+        return CompletableFuture.allOf(pendingHalves.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, e) -> null)
+                .thenComposeAsync(ignored -> collectHalves(block, pendingRead, halves, pendingHalves), executor);
+    }
+
+    /**
+     * Collect the outcome of the reads of both halves of a rejected block and bisect the halves still rejected
+     */
+    private CompletableFuture<Void> collectHalves(ReadBlock block, CompletableFuture<int[]> pendingRead,
+                                                  List<ReadBlock> halves, List<CompletableFuture<int[]>> pendingHalves) {
+        List<CompletableFuture<Void>> bisections = new ArrayList<>();
+        boolean halvesRead = true;
+        for (int i = 0; i < halves.size(); i++) {
+            ReadBlock half = halves.get(i);
+            CompletableFuture<int[]> pendingHalf = pendingHalves.get(i);
+            int[] words = modbusTCPService.awaitBlock(half, pendingHalf).orElse(null);
+            if (words != null) {
+                synchronized (this) {
+                    read.put(half, words);
+                }
+                continue;
+            }
+            halvesRead = false;
+            if (ReadFailure.of(pendingHalf).isRejected()) {
+                bisections.add(bisect(half, pendingHalf));
+            } else {
+                synchronized (this) {
+                    failed.add(half);
+                }
+            }
+        }
+        if (halvesRead && ReadFailure.of(pendingRead) == ReadFailure.ILLEGAL_ADDRESS) {
+            modbusTCPService.getDeviceProfile().rejectedGap(block.getRegisterType(),
+                    halves.get(0).getEndAddress(), halves.get(1).getStartAddress());
+        } else if (halvesRead && ReadFailure.of(pendingRead) == ReadFailure.ILLEGAL_VALUE) {
+            modbusTCPService.getDeviceProfile().rejectedCount(block);
+        }
+        return CompletableFuture.allOf(bisections.toArray(new CompletableFuture<?>[0]));
+    }
+}
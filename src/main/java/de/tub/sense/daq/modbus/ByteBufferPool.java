@@ -0,0 +1,55 @@
+package de.tub.sense.daq.modbus;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct byte buffers of a fixed size, so frames can be encoded and decoded without allocating a new buffer
+ * for every request.
+ *
+ * @created 17/10/2026 - 11:45
+ * @project DAQConfigLoader
+ */
+
+class ByteBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Take a cleared buffer from the pool or allocate a new one if the pool is empty
+     *
+     * @return buffer ready to be written
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool. The buffer must not be used by the caller afterwards.
+     *
+     * @param buffer to return
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize && pooled.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package de.tub.sense.daq.modbus;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of the write commands of one equipment. Commands arriving within the write window are collected and writes to
+ * adjacent holding registers or coils are merged into one write multiple registers or coils request. Each command
+ * keeps its own future, which fails if any request covering its registers fails. Commands which change a single bit
+ * of a register are not merged, they split the batch so the order of the commands is kept. The same holds for commands
+ * which read registers back with their write.
+ *
+ * @created 17/10/2026 - 15:20
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class CommandQueue {
+
+    /**
+     * Maximum number of registers of a write multiple registers request
+     */
+    static final int MAX_REGISTERS_PER_WRITE = 123;
+
+    /**
+     * Maximum number of coils of a write multiple coils request
+     */
+    static final int MAX_COILS_PER_WRITE = 1968;
+
+    private final ModbusTCPService modbusTCPService;
+    private final int writeWindow;
+    private final ScheduledExecutorService executor;
+    private final List<Command> queued = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    /**
+     * @param name             of the equipment, used to name the command thread
+     * @param modbusTCPService to write with
+     * @param writeWindow      in milliseconds to wait for further commands before writing
+     */
+    public CommandQueue(String name, ModbusTCPService modbusTCPService, int writeWindow) {
+        this.modbusTCPService = modbusTCPService;
+        this.writeWindow = Math.max(0, writeWindow);
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat(name + "-commands").setDaemon(true).build());
+    }
+
+    /**
+     * Queue a write command
+     *
+     * @param codec of the command tag
+     * @param value to write
+     * @return future completed when the value is written
+     */
+    public CompletableFuture<Void> submit(TagCodec codec, Object value) {
+        return submit(codec, value, null).thenApply(words -> null);
+    }
+
+    /**
+     * Queue a write command which reads a block of holding registers back after writing
+     *
+     * @param codec    of the command tag
+     * @param value    to write
+     * @param readback block read back after the write, or null to read nothing back
+     * @return future completed with the raw register values of the readback block when the value is written, null if
+     * nothing was read back
+     */
+    public CompletableFuture<int[]> submit(TagCodec codec, Object value, ReadBlock readback) {
+        Command command = new Command(codec, value, readback);
+        if (codec.getRegisterType() == RegisterType.COIL && !(value instanceof Boolean)) {
+            command.future.completeExceptionally(new IllegalArgumentException("Cannot write " + value + " to a coil"));
+            return command.future;
+        }
+        if (codec.getRegisterType() == RegisterType.HOLDING && !codec.isRegisterBit()) {
+            Optional<int[]> words = codec.encode(value);
+            if (!words.isPresent()) {
+                command.future.completeExceptionally(new IllegalArgumentException("Cannot process data of type " + codec.getValueType()
+                        + " for write value count " + codec.getWordCount() + " to " + codec.getRegisterType() + " register"));
+                return command.future;
+            }
+            command.words = words.get();
+        }
+        synchronized (this) {
+            queued.add(command);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, writeWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+        return command.future;
+    }
+
+    /**
+     * Stop the command thread and fail the commands which are not written yet
+     */
+    public void close() {
+        executor.shutdownNow();
+        List<Command> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(queued);
+            queued.clear();
+        }
+        remaining.forEach(command -> command.future.completeExceptionally(new IllegalStateException("Command queue closed")));
+    }
+
+    private void flush() {
+        List<Command> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(queued);
+            queued.clear();
+            flushScheduled = false;
+        }
+        try {
+            List<Command> mergeable = new ArrayList<>();
+            for (Command command : batch) {
+                if (command.isMergeable()) {
+                    mergeable.add(command);
+                    continue;
+                }
+                writeMerged(mergeable);
+                mergeable.clear();
+                writeSingle(command);
+            }
+            writeMerged(mergeable);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while writing commands", e);
+            batch.forEach(command -> command.future.completeExceptionally(e));
+        }
+    }
+
+    private void writeSingle(Command command) {
+        try {
+            if (command.readback != null) {
+                command.future.complete(modbusTCPService.writeValueAndReadBack(command.codec, command.value, command.readback));
+                return;
+            }
+            modbusTCPService.writeValue(command.codec, command.value);
+            command.future.complete(null);
+        } catch (Exception e) {
+            command.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Write commands to holding registers and coils with as few requests as possible. Later commands overwrite the
+     * registers of earlier ones.
+     *
+     * @param commands in the order they arrived
+     */
+    private void writeMerged(List<Command> commands) {
+        if (commands.isEmpty()) {
+            return;
+        }
+        TreeMap<Integer, Integer> registers = new TreeMap<>();
+        TreeMap<Integer, Integer> coils = new TreeMap<>();
+        Map<Integer, List<Command>> registerOwners = new HashMap<>();
+        Map<Integer, List<Command>> coilOwners = new HashMap<>();
+        for (Command command : commands) {
+            int start = command.codec.getStartAddress();
+            if (command.codec.getRegisterType() == RegisterType.COIL) {
+                coils.put(start, (boolean) command.value ? 1 : 0);
+                coilOwners.computeIfAbsent(start, k -> new ArrayList<>()).add(command);
+            } else {
+                for (int i = 0; i < command.words.length; i++) {
+                    registers.put(start + i, command.words[i]);
+                    registerOwners.computeIfAbsent(start + i, k -> new ArrayList<>()).add(command);
+                }
+            }
+        }
+        Map<Command, Exception> failures = new IdentityHashMap<>();
+        writeRuns(RegisterType.HOLDING, registers, registerOwners, MAX_REGISTERS_PER_WRITE, failures);
+        writeRuns(RegisterType.COIL, coils, coilOwners, MAX_COILS_PER_WRITE, failures);
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote {} commands, {} failed", commands.size(), failures.size());
+        }
+        for (Command command : commands) {
+            Exception failure = failures.get(command);
+            if (failure == null) {
+                command.future.complete(null);
+            } else {
+                command.future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Split the values into runs of contiguous addresses and write each run with one request
+     */
+    private void writeRuns(RegisterType registerType, TreeMap<Integer, Integer> values, Map<Integer, List<Command>> owners,
+                           int maxPerWrite, Map<Command, Exception> failures) {
+        Iterator<Map.Entry<Integer, Integer>> entries = values.entrySet().iterator();
+        Map.Entry<Integer, Integer> next = entries.hasNext() ? entries.next() : null;
+        while (next != null) {
+            int start = next.getKey();
+            List<Integer> run = new ArrayList<>();
+            do {
+                run.add(next.getValue());
+                next = entries.hasNext() ? entries.next() : null;
+            } while (next != null && next.getKey() == start + run.size() && run.size() < maxPerWrite);
+            try {
+                write(registerType, start, run);
+            } catch (Exception e) {
+                log.warn("Could not write {} {} registers with startAddress {}: {}", run.size(), registerType, start, e.getMessage());
+                for (int address = start; address < start + run.size(); address++) {
+                    for (Command owner : owners.get(address)) {
+                        failures.putIfAbsent(owner, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(RegisterType registerType, int start, List<Integer> run) throws Exception {
+        if (registerType == RegisterType.COIL) {
+            boolean[] bits = new boolean[run.size()];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = run.get(i) != 0;
+            }
+            modbusTCPService.writeCoils(start, bits);
+        } else {
+            int[] words = new int[run.size()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = run.get(i);
+            }
+            modbusTCPService.writeRegisters(start, words);
+        }
+    }
+
+    private static class Command {
+
+        private final TagCodec codec;
+        private final Object value;
+        private final ReadBlock readback;
+        private final CompletableFuture<int[]> future = new CompletableFuture<>();
+        private int[] words;
+
+        private Command(TagCodec codec, Object value, ReadBlock readback) {
+            this.codec = codec;
+            this.value = value;
+            this.readback = readback;
+        }
+
+        private boolean isMergeable() {
+            return readback == null && (codec.getRegisterType() == RegisterType.COIL || words != null);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the connection of one equipment up in the background, so no polling or refresh thread ever waits for a
+ * connection attempt. The connection is
+ * <ul>
+ * <li>CONNECTING while an attempt is in progress,</li>
+ * <li>UP while the device answers,</li>
+ * <li>DEGRADED while the transport is open but the device did not answer recently,</li>
+ * <li>BACKOFF while waiting for the next attempt after a failed one or a lost connection.</li>
+ * </ul>
+ * Attempts are repeated with an exponential backoff with jitter, so equipments losing the connection together do not
+ * reconnect in lockstep. Every second the transport is checked. If the device did not answer for a while or stopped
+ * answering, it is probed with a read of a single register. A connection whose probes fail repeatedly is taken as
+ * half-open, it is aborted and opened again. A connection shared through a gateway stays open while other equipments
+ * still get answers, only the requests of the silent equipment are failed.
+ *
+ * @created 17/10/2026 - 21:30
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class ConnectionManager {
+
+    public enum State {
+        CONNECTING,
+        UP,
+        DEGRADED,
+        BACKOFF
+    }
+
+    /**
+     * Interval the transport is checked with in milliseconds
+     */
+    static final long CHECK_INTERVAL = 1000;
+
+    /**
+     * Time in milliseconds without answer after which the device is probed
+     */
+    static final long PROBE_INTERVAL = 5000;
+
+    /**
+     * Number of failed probes in a row after which the connection is taken as half-open
+     */
+    static final int MAX_FAILED_PROBES = 2;
+
+    /**
+     * Backoff in milliseconds after the first failed attempt, it doubles with every further one
+     */
+    static final long INITIAL_BACKOFF = 500;
+
+    /**
+     * Upper bound of the backoff in milliseconds
+     */
+    static final long MAX_BACKOFF = 30000;
+
+    /**
+     * Connection threads shared by all equipments, they only connect and probe
+     */
+    private static final ScheduledExecutorService EXECUTOR = Executors.newScheduledThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat("modbus-connect-%d").setDaemon(true).build());
+
+    private final String name;
+    private final ModbusFunctionFactory transport;
+    private final PrioritizedModbusSocket scheduler;
+    private volatile State state = State.BACKOFF;
+    private int failedAttempts = 0;
+    private int failedProbes = 0;
+    private boolean started = false;
+    private volatile boolean closed = false;
+    private ScheduledFuture<?> monitor;
+
+    /**
+     * @param name      of the connection used in the log
+     * @param transport to connect, check and close
+     * @param scheduler scheduling the requests of the transport, its command lane sends the probes
+     */
+    public ConnectionManager(String name, ModbusFunctionFactory transport, PrioritizedModbusSocket scheduler) {
+        this.name = name;
+        this.transport = transport;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Start connecting in the background and checking the connection, returns immediately
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        setState(State.CONNECTING);
+        EXECUTOR.execute(this::attempt);
+        monitor = EXECUTOR.scheduleWithFixedDelay(this::check, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wait until the connection is up
+     *
+     * @param millis to wait at most
+     * @return true if the connection is up
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitUp(long millis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + millis;
+        long remaining = millis;
+        while (!isUp() && !closed && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return isUp();
+    }
+
+    /**
+     * Check if requests can be sent, pollers skip their work otherwise
+     *
+     * @return true if the connection is up or degraded
+     */
+    public boolean isUp() {
+        return state == State.UP || state == State.DEGRADED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Stop connecting and checking the connection, the transport is not closed
+     */
+    public synchronized void close() {
+        closed = true;
+        if (monitor != null) {
+            monitor.cancel(false);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Try to open the transport, on failure the next attempt is scheduled after the backoff
+     */
+    private void attempt() {
+        if (closed) {
+            return;
+        }
+        setState(State.CONNECTING);
+        try {
+            if (transport.connect()) {
+                if (failedAttempts > 0) {
+                    log.info("Connection to {} established again after {} failed attempt(s)", name, failedAttempts);
+                }
+                failedAttempts = 0;
+                failedProbes = 0;
+                setState(State.UP);
+                return;
+            }
+            log.warn("Connection to {} failed", name);
+        } catch (Exception e) {
+            log.warn("Connection to {} failed: {}", name, e.getMessage());
+        }
+        backoff();
+    }
+
+    /**
+     * Schedule the next attempt after a jittered exponential backoff
+     */
+    private void backoff() {
+        if (closed) {
+            return;
+        }
+        long backoff = Math.min(MAX_BACKOFF, INITIAL_BACKOFF << Math.min(failedAttempts, 16));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        failedAttempts++;
+        setState(State.BACKOFF);
+        log.info("Connecting to {} again in {}ms", name, delay);
+        EXECUTOR.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check the transport of an established connection and probe the device if it did not answer recently
+     */
+    private void check() {
+        try {
+            if (closed || !isUp()) {
+                return;
+            }
+            if (!transport.isConnected()) {
+                log.warn("Connection to {} lost", name);
+                backoff();
+                return;
+            }
+            boolean idle = System.nanoTime() - scheduler.getLastAnswer() > TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL);
+            if (idle || scheduler.isFailingFast()) {
+                probe();
+            } else if (state == State.DEGRADED) {
+                setState(State.UP);
+            }
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while checking the connection to {}", name, e);
+        }
+    }
+
+    /**
+     * Read a single register to find out if the device still answers. An exception response is an answer as well.
+     */
+    private void probe() {
+        try {
+            ModbusFunctionFactory.await(scheduler.lane(PrioritizedModbusSocket.Priority.COMMAND)
+                    .submit(new ReadMultipleRegistersRequest(0, 1)));
+            probeAnswered();
+        } catch (ModbusSlaveException e) {
+            probeAnswered();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failedProbes++;
+            if (failedProbes < MAX_FAILED_PROBES) {
+                log.warn("Device behind {} did not answer a probe: {}", name, e.getMessage());
+                setState(State.DEGRADED);
+                return;
+            }
+            log.warn("Device behind {} did not answer {} probes, aborting the connection", name, failedProbes);
+            failedProbes = 0;
+            transport.abort();
+            failedAttempts = 0;
+            backoff();
+        }
+    }
+
+    private void probeAnswered() {
+        failedProbes = 0;
+        if (state == State.DEGRADED) {
+            setState(State.UP);
+        }
+    }
+
+    private synchronized void setState(State state) {
+        if (this.state != state) {
+            log.debug("Connection to {} is {}", name, state);
+            this.state = state;
+            notifyAll();
+        }
+    }
+}
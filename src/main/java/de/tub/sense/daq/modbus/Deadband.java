@@ -0,0 +1,140 @@
+package de.tub.sense.daq.modbus;
+
+import de.tub.sense.daq.config.xml.HardwareAddress;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Minimum change of a numeric tag before a new value is published, compared with the last published value. The
+ * deadband is configured per signal in one of three modes:
+ * <ul>
+ * <li>absolute: the scaled value has to change by more than the deadband,</li>
+ * <li>range: the scaled value has to change by more than the deadband in percent of the range from minimum to
+ * maximum,</li>
+ * <li>value: the scaled value has to change by more than the deadband in percent of the last published value.</li>
+ * </ul>
+ * The values are compared as raw bits of their value type, multiplier and offset are applied to the difference only,
+ * so checking a value neither boxes nor allocates. The threshold of older configurations is an absolute deadband of
+ * the raw value and only applies to float and double tags.
+ *
+ * @created 17/10/2026 - 22:55
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+@Getter
+@ToString
+public class Deadband {
+
+    public enum Mode {
+        ABSOLUTE,
+        RANGE,
+        VALUE;
+
+        /**
+         * Get the mode of a deadband by its name in the configuration
+         *
+         * @param name of the mode, e.g. absolute, empty for the absolute mode
+         * @return mode or empty if the name is not known
+         */
+        public static Optional<Mode> fromName(String name) {
+            if (name == null || name.isEmpty()) {
+                return Optional.of(ABSOLUTE);
+            }
+            switch (name.toLowerCase(Locale.ROOT)) {
+                case "absolute":
+                    return Optional.of(ABSOLUTE);
+                case "range":
+                    return Optional.of(RANGE);
+                case "value":
+                    return Optional.of(VALUE);
+                default:
+                    return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Deadband of tags publishing every change
+     */
+    public static final Deadband NONE = new Deadband(Mode.ABSOLUTE, 0, 1, 0);
+
+    private final Mode mode;
+    /**
+     * Change of the scaled value in the absolute and range mode, fraction of the last published scaled value in the
+     * value mode
+     */
+    private final double width;
+    private final double multiplier;
+    private final double offset;
+
+    private Deadband(Mode mode, double width, double multiplier, double offset) {
+        this.mode = mode;
+        this.width = width;
+        this.multiplier = multiplier;
+        this.offset = offset;
+    }
+
+    /**
+     * Resolve the deadband of a tag. Booleans and tags with an invalid deadband publish every change.
+     *
+     * @param hardwareAddress of the tag
+     * @param valueType       of the tag
+     * @param multiplier      of the tag, 1 if not configured
+     * @param offset          of the tag
+     * @return deadband of the tag
+     */
+    public static Deadband of(HardwareAddress hardwareAddress, ValueType valueType, double multiplier, double offset) {
+        if (valueType == ValueType.BOOLEAN) {
+            return NONE;
+        }
+        double deadband = hardwareAddress.getDeadband();
+        if (deadband <= 0) {
+            if (hardwareAddress.getThreshold() > 0 && valueType.isFloatingPoint()) {
+                return new Deadband(Mode.ABSOLUTE, hardwareAddress.getThreshold() * Math.abs(multiplier), multiplier, offset);
+            }
+            return NONE;
+        }
+        Optional<Mode> mode = Mode.fromName(hardwareAddress.getDeadbandMode());
+        if (!mode.isPresent()) {
+            log.warn("Deadband mode {} not valid, publishing every change", hardwareAddress.getDeadbandMode());
+            return NONE;
+        }
+        switch (mode.get()) {
+            case RANGE:
+                double range = hardwareAddress.getMaxValue() - hardwareAddress.getMinValue();
+                if (range <= 0) {
+                    log.warn("Deadband in percent of the range needs a maximum above the minimum, publishing every change");
+                    return NONE;
+                }
+                return new Deadband(Mode.RANGE, deadband / 100 * range, multiplier, offset);
+            case VALUE:
+                return new Deadband(Mode.VALUE, deadband / 100, multiplier, offset);
+            default:
+                return new Deadband(Mode.ABSOLUTE, deadband, multiplier, offset);
+        }
+    }
+
+    /**
+     * Check if a value changed by more than the deadband since the last published value
+     *
+     * @param valueType of the tag
+     * @param bits      of the new raw value
+     * @param prevBits  of the last published raw value
+     * @return true if the value has to be published
+     */
+    public boolean exceeds(ValueType valueType, long bits, long prevBits) {
+        if (width <= 0) {
+            return true;
+        }
+        double change = valueType.distance(bits, prevBits) * Math.abs(multiplier);
+        if (mode == Mode.VALUE) {
+            return change > width * Math.abs(valueType.toDouble(prevBits) * multiplier + offset);
+        }
+        return change > width;
+    }
+}
@@ -0,0 +1,244 @@
+package de.tub.sense.daq.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What was learned about the read requests one device accepts and what they cost, per register space. The profile
+ * starts with the limits of the modbus specification and is refined while the device is polled:
+ * <ul>
+ *     <li>A read of several tags rejected with illegal data value, although both halves of its tags can be read, is
+ *     taken as a too large request. The maximum number of registers per request is halved below the rejected count.
+ *     A single tag rejected with illegal data value does not change the limit.</li>
+ *     <li>A read rejected with illegal data address, although both halves of its tags can be read, marks the unused
+ *     registers between the halves as unsafe. Read blocks are never merged across them again.</li>
+ *     <li>The round trip times of answered reads are fitted to a fixed cost per request plus a cost per register.
+ *     Reading unused registers to merge two blocks pays off as long as they cost less than a request, so the ratio
+ *     of both costs becomes the largest gap merged.</li>
+ * </ul>
+ * The read planner uses the profile to build the read blocks, they are planned again whenever the profile changes.
+ *
+ * @created 17/10/2026 - 17:30
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class DeviceProfile {
+
+    /**
+     * Number of answered reads between two fits of the cost model
+     */
+    static final int FIT_INTERVAL = 32;
+
+    /**
+     * Number of answered reads after which older reads count only half, so the costs follow changes of the device
+     */
+    static final int MAX_WEIGHT = 1024;
+
+    /**
+     * Relative change of the largest gap needed to plan the read blocks again
+     */
+    static final double REPLAN_CHANGE = 0.25;
+
+    private static final int ADDRESS_SPACE = 1 << 16;
+
+    private final EnumMap<RegisterType, Space> spaces = new EnumMap<>(RegisterType.class);
+    private volatile boolean changed = false;
+
+    public DeviceProfile() {
+        this(ReadPlanner.DEFAULT_MAX_GAP);
+    }
+
+    /**
+     * @param maxGap number of unused registers merged into a read block until the costs of the device are measured
+     */
+    public DeviceProfile(int maxGap) {
+        for (RegisterType registerType : RegisterType.values()) {
+            // one register of gap allows one word of unused bits
+            int gap = Math.max(0, registerType.isBit() ? maxGap * Short.SIZE : maxGap);
+            spaces.put(registerType, new Space(registerType.getMaxPerRequest(), gap));
+        }
+    }
+
+    /**
+     * Get the largest number of registers or bits the device accepted in a single read request so far
+     *
+     * @param registerType of the request
+     * @return maximum number of registers or bits per request
+     */
+    public synchronized int getMaxPerRequest(RegisterType registerType) {
+        return spaces.get(registerType).maxPerRequest;
+    }
+
+    /**
+     * Get the largest number of unused registers or bits which are cheaper to read than a separate request
+     *
+     * @param registerType of the request
+     * @return maximum gap in registers or bits
+     */
+    public synchronized int getMaxGap(RegisterType registerType) {
+        return spaces.get(registerType).maxGap;
+    }
+
+    /**
+     * Check if the unused registers between two read blocks can be read without the device rejecting the request
+     *
+     * @param registerType of the registers
+     * @param from         first unused address
+     * @param to           first address after the gap
+     * @return true if no address in the gap is known to be rejected
+     */
+    public synchronized boolean isSafeGap(RegisterType registerType, int from, int to) {
+        if (from >= to) {
+            return true;
+        }
+        int unsafe = spaces.get(registerType).unsafe.nextSetBit(Math.max(0, from));
+        return unsafe < 0 || unsafe >= to;
+    }
+
+    /**
+     * Check and clear if the profile changed in a way that should change the read blocks
+     *
+     * @return true if the read blocks should be planned again
+     */
+    public boolean takeChanged() {
+        if (!changed) {
+            return false;
+        }
+        changed = false;
+        return true;
+    }
+
+    /**
+     * Add the round trip time of an answered read request to the cost model
+     *
+     * @param registerType of the request
+     * @param count        of registers or bits read
+     * @param nanos        round trip time in nanoseconds
+     */
+    public synchronized void recordRead(RegisterType registerType, int count, long nanos) {
+        Space space = spaces.get(registerType);
+        space.add(count, nanos / (double) TimeUnit.MICROSECONDS.toNanos(1));
+        if (space.samplesSinceFit >= FIT_INTERVAL) {
+            space.samplesSinceFit = 0;
+            fit(registerType, space);
+        }
+    }
+
+    /**
+     * Learn from a read request of a block which the device rejected with illegal data value while both halves of its
+     * tags could be read, taken as a request for too many registers
+     *
+     * @param block which could not be read as a whole
+     */
+    public synchronized void rejectedCount(ReadBlock block) {
+        Space space = spaces.get(block.getRegisterType());
+        if (block.getCount() > 1 && block.getCount() <= space.maxPerRequest) {
+            space.maxPerRequest = Math.max(1, block.getCount() / 2);
+            space.maxGap = Math.min(space.maxGap, space.maxPerRequest);
+            log.info("Device rejected reading {} {} registers, reading at most {} per request",
+                    block.getCount(), block.getRegisterType(), space.maxPerRequest);
+            changed = true;
+        }
+    }
+
+    /**
+     * Mark unused registers as unsafe, because the device rejected a read across them with illegal data address
+     * although the tags on both sides can be read
+     *
+     * @param registerType of the registers
+     * @param from         first unused address
+     * @param to           first address after the gap
+     */
+    public synchronized void rejectedGap(RegisterType registerType, int from, int to) {
+        BitSet unsafe = spaces.get(registerType).unsafe;
+        to = Math.min(to, ADDRESS_SPACE);
+        if (from < to && unsafe.nextClearBit(from) < to) {
+            unsafe.set(from, to);
+            log.info("Device rejected reading {} registers {} to {}, not reading them again", registerType, from, to - 1);
+            changed = true;
+        }
+    }
+
+    /**
+     * Fit the cost per request and the cost per register with least squares and derive the largest gap from them
+     */
+    private void fit(RegisterType registerType, Space space) {
+        double variance = space.n * space.sumXX - space.sumX * space.sumX;
+        if (variance <= 0) {
+            // all reads had the same size, the costs can not be told apart
+            return;
+        }
+        double perRegister = (space.n * space.sumXY - space.sumX * space.sumY) / variance;
+        double perRequest = (space.sumY - perRegister * space.sumX) / space.n;
+        int maxGap;
+        if (perRegister <= 0) {
+            maxGap = space.maxPerRequest;
+        } else {
+            maxGap = (int) Math.min(space.maxPerRequest, Math.max(0, perRequest / perRegister));
+        }
+        if (Math.abs(maxGap - space.maxGap) > Math.max(1, space.maxGap * REPLAN_CHANGE)) {
+            if (log.isInfoEnabled()) {
+                log.info("Measured {}us per request and {}us per {} register, merging gaps of up to {} registers",
+                        String.format("%.1f", perRequest), String.format("%.2f", perRegister), registerType, maxGap);
+            }
+            space.maxGap = maxGap;
+            changed = true;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringJoiner joiner = new StringJoiner(", ", "DeviceProfile(", ")");
+        for (RegisterType registerType : RegisterType.values()) {
+            Space space = spaces.get(registerType);
+            joiner.add(registerType + "=[maxPerRequest=" + space.maxPerRequest + ", maxGap=" + space.maxGap
+                    + ", unsafe=" + space.unsafe.cardinality() + "]");
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Limits and cost model of one register space
+     */
+    private static class Space {
+
+        private int maxPerRequest;
+        private int maxGap;
+        private final BitSet unsafe = new BitSet();
+        private double n;
+        private double sumX;
+        private double sumY;
+        private double sumXX;
+        private double sumXY;
+        private int samplesSinceFit;
+
+        private Space(int maxPerRequest, int maxGap) {
+            this.maxPerRequest = maxPerRequest;
+            this.maxGap = Math.min(maxGap, maxPerRequest);
+        }
+
+        /**
+         * Add a read of x registers which took y microseconds
+         */
+        private void add(double x, double y) {
+            if (n >= MAX_WEIGHT) {
+                n /= 2;
+                sumX /= 2;
+                sumY /= 2;
+                sumXX /= 2;
+                sumXY /= 2;
+            }
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+            samplesSinceFit++;
+        }
+    }
+}
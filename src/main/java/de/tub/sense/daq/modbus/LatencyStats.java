@@ -0,0 +1,58 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe count, mean and maximum of measured latencies since the last reset
+ *
+ * @created 17/10/2026 - 16:05
+ * @project DAQConfigLoader
+ */
+
+public class LatencyStats {
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Add a measured latency
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get the mean of the latencies since the last reset
+     *
+     * @return mean latency in milliseconds, 0 if nothing was measured
+     */
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / (double) n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Get the maximum of the latencies since the last reset
+     *
+     * @return maximum latency in milliseconds
+     */
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public void reset() {
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+}
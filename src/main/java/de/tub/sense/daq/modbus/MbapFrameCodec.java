@@ -0,0 +1,180 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.msg.ReadCoilsRequest;
+import com.ghgande.j2mod.modbus.msg.ReadInputDiscretesRequest;
+import com.ghgande.j2mod.modbus.msg.ReadInputRegistersRequest;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes requests to and decodes responses from modbus application protocol (MBAP) frames, as they are used by
+ * modbus TCP and modbus UDP. Allows transports to keep several transactions in flight and to match the responses by
+ * their transaction id.
+ *
+ * @created 17/10/2026 - 10:05
+ * @project DAQConfigLoader
+ */
+
+final class MbapFrameCodec {
+
+    /**
+     * Length of the MBAP header: transaction id, protocol id, length and unit id
+     */
+    static final int HEADER_LENGTH = 7;
+
+    /**
+     * Maximum length of a modbus TCP frame (header and PDU)
+     */
+    static final int MAX_FRAME_LENGTH = 260;
+
+    private MbapFrameCodec() {
+    }
+
+    /**
+     * Length of the PDU data of a read request: reference and count
+     */
+    private static final int READ_DATA_LENGTH = 4;
+
+    /**
+     * Write a request as MBAP frame into a buffer. Read requests, which make up the polling, are written field by
+     * field without allocating, other requests are serialized by j2mod first.
+     *
+     * @param request       to encode
+     * @param transactionId to match the response with
+     * @param out           buffer to write the frame to
+     */
+    static void encode(ModbusRequest request, int transactionId, ByteBuffer out) {
+        out.putShort((short) transactionId);
+        out.putShort((short) 0);
+        if (request instanceof ReadMultipleRegistersRequest) {
+            ReadMultipleRegistersRequest read = (ReadMultipleRegistersRequest) request;
+            putRead(request, read.getReference(), read.getWordCount(), out);
+        } else if (request instanceof ReadInputRegistersRequest) {
+            ReadInputRegistersRequest read = (ReadInputRegistersRequest) request;
+            putRead(request, read.getReference(), read.getWordCount(), out);
+        } else if (request instanceof ReadCoilsRequest) {
+            ReadCoilsRequest read = (ReadCoilsRequest) request;
+            putRead(request, read.getReference(), read.getBitCount(), out);
+        } else if (request instanceof ReadInputDiscretesRequest) {
+            ReadInputDiscretesRequest read = (ReadInputDiscretesRequest) request;
+            putRead(request, read.getReference(), read.getBitCount(), out);
+        } else {
+            byte[] data = request.getMessage();
+            out.putShort((short) (data.length + 2));
+            out.put((byte) request.getUnitID());
+            out.put((byte) request.getFunctionCode());
+            out.put(data);
+        }
+    }
+
+    /**
+     * Write the length, unit id and PDU of a read request after the transaction and protocol id
+     *
+     * @param request   to encode
+     * @param reference first register or bit to read
+     * @param count     of registers or bits to read
+     * @param out       buffer to write the frame to
+     */
+    private static void putRead(ModbusRequest request, int reference, int count, ByteBuffer out) {
+        out.putShort((short) (READ_DATA_LENGTH + 2));
+        out.put((byte) request.getUnitID());
+        out.put((byte) request.getFunctionCode());
+        out.putShort((short) reference);
+        out.putShort((short) count);
+    }
+
+    /**
+     * Write a request as MBAP frame into a new byte array
+     *
+     * @param request       to encode
+     * @param transactionId to match the response with
+     * @return the frame
+     */
+    static byte[] encode(ModbusRequest request, int transactionId) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_FRAME_LENGTH);
+        encode(request, transactionId, buffer);
+        byte[] frame = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(frame);
+        return frame;
+    }
+
+    /**
+     * Get the transaction id of a frame without consuming the buffer
+     *
+     * @param frame starting at the current position of the buffer
+     * @return transaction id
+     */
+    static int transactionId(ByteBuffer frame) {
+        return frame.getShort(frame.position()) & 0xFFFF;
+    }
+
+    /**
+     * Get the length of the frame which starts at the current position of the buffer
+     *
+     * @param frame with at least the MBAP header remaining
+     * @return total length of the frame in bytes
+     */
+    static int frameLength(ByteBuffer frame) {
+        return HEADER_LENGTH - 1 + (frame.getShort(frame.position() + 4) & 0xFFFF);
+    }
+
+    /**
+     * Decode a whole MBAP frame into a response
+     *
+     * @param frame buffer positioned at the start of the frame, limited to its end
+     * @return decoded response
+     * @throws ModbusException if the device answered with an exception response
+     * @throws IOException     if the frame is malformed
+     */
+    static ModbusResponse decode(ByteBuffer frame) throws ModbusException, IOException {
+        int transactionId = frame.getShort() & 0xFFFF;
+        frame.getShort();
+        frame.getShort();
+        int unitId = frame.get() & 0xFF;
+        int functionCode = frame.get() & 0xFF;
+        if ((functionCode & 0x80) != 0) {
+            throw new ModbusSlaveException(frame.get() & 0xFF);
+        }
+        ModbusResponse response = ModbusResponse.createModbusResponse(functionCode);
+        response.setTransactionID(transactionId);
+        response.setUnitID(unitId);
+        response.readData(new DataInputStream(new ByteBufferInputStream(frame)));
+        return response;
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer without copying them
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -4,10 +4,118 @@ import com.ghgande.j2mod.modbus.msg.*;
 import com.ghgande.j2mod.modbus.procimg.Register;
 import com.ghgande.j2mod.modbus.procimg.SimpleInputRegister;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
 public abstract class ModbusFunctionFactory {
 
     protected abstract ModbusResponse execute(ModbusRequest paramModbusRequest) throws Exception;
 
+    /**
+     * Establish the connection to the modbus device
+     *
+     * @return true if connection success false if not
+     * @throws Exception if something goes wrong while connecting
+     */
+    public abstract boolean connect() throws Exception;
+
+    /**
+     * Disconnect gently from the modbus device
+     */
+    public abstract void disconnect();
+
+    /**
+     * Close the connection because the device stopped answering, e.g. because it is half-open. It is opened again by
+     * the next connect. By default the connection is disconnected, a connection shared by several equipments stays
+     * open as long as the others still get answers.
+     */
+    public void abort() {
+        disconnect();
+    }
+
+    /**
+     * Check if the connection to the modbus device is established
+     *
+     * @return true if connected, false if not
+     */
+    public abstract boolean isConnected();
+
+    /**
+     * Change the time to wait for the response of a request. Transports which can not change their timeout ignore it.
+     *
+     * @param timeout in milliseconds
+     */
+    public void setTimeout(int timeout) {
+    }
+
+    /**
+     * Execute a modbus request without waiting for the response. Transports which can keep several transactions in
+     * flight override this, by default the request is executed synchronously.
+     *
+     * @param request you want to execute
+     * @return future completed with the response of the request
+     */
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        try {
+            future.complete(execute(request));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Check if the transport keeps several transactions in flight itself, so submit() returns without waiting for
+     * the response
+     *
+     * @return true if submit() does not block until the response is received
+     */
+    public boolean isAsynchronous() {
+        return false;
+    }
+
+    /**
+     * Wait for a submitted request and rethrow the exception it failed with
+     *
+     * @param future of the submitted request
+     * @return response of the request
+     * @throws Exception the request failed with
+     */
+    protected static ModbusResponse await(CompletableFuture<ModbusResponse> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Read a range of registers or bits without waiting for the response
+     *
+     * @param registerType of the range
+     * @param startAddress of the range
+     * @param count        of registers or bits
+     * @return future completed with the read response
+     */
+    public CompletableFuture<ModbusResponse> readAsync(RegisterType registerType, int startAddress, int count) {
+        switch (registerType) {
+            case HOLDING:
+                return submit(new ReadMultipleRegistersRequest(startAddress, count));
+            case INPUT:
+                return submit(new ReadInputRegistersRequest(startAddress, count));
+            case COIL:
+                return submit(new ReadCoilsRequest(startAddress, count));
+            case DISCRETE:
+                return submit(new ReadInputDiscretesRequest(startAddress, count));
+            default:
+                throw new IllegalArgumentException("Register type " + registerType + " can not be read");
+        }
+    }
+
     public ReadCoilsResponse readCoils(int startAddress) throws Exception {
         return readCoils(startAddress, null);
     }
@@ -73,6 +181,21 @@ public abstract class ModbusFunctionFactory {
         return (WriteSingleRegisterResponse) execute(request);
     }
 
+    /**
+     * Change bits of a holding register in a single transaction (function code 22). The device sets the register to
+     * (current AND andMask) OR (orMask AND NOT andMask).
+     *
+     * @param startAddress of the register
+     * @param andMask      bits to keep
+     * @param orMask       bits to set
+     * @return response of the device
+     * @throws Exception if the request fails, a device without support responds with an illegal function exception
+     */
+    public MaskWriteRegisterResponse maskWriteRegister(int startAddress, int andMask, int orMask) throws Exception {
+        MaskWriteRegisterRequest request = new MaskWriteRegisterRequest(startAddress, andMask, orMask);
+        return (MaskWriteRegisterResponse) execute(request);
+    }
+
     public WriteMultipleRegistersResponse writeRegisters(int startAddress, int[] values) throws Exception {
         Register[] regs = new Register[values.length];
         for (int i = 0; i < values.length; i++)
@@ -80,4 +203,24 @@ public abstract class ModbusFunctionFactory {
         WriteMultipleRegistersRequest request = new WriteMultipleRegistersRequest(startAddress, regs);
         return (WriteMultipleRegistersResponse) execute(request);
     }
+
+    /**
+     * Write holding registers and read holding registers in a single transaction (function code 23). The device
+     * writes before it reads, so the response already reflects the written values.
+     *
+     * @param readAddress  of the first register to read
+     * @param readCount    of the registers to read
+     * @param writeAddress of the first register to write
+     * @param values       to write
+     * @return response with the registers read
+     * @throws Exception if the request fails, a device without support responds with an illegal function exception
+     */
+    public ReadWriteMultipleResponse readWriteRegisters(int readAddress, int readCount, int writeAddress, int[] values) throws Exception {
+        Register[] regs = new Register[values.length];
+        for (int i = 0; i < values.length; i++)
+            regs[i] = new SimpleInputRegister(values[i]);
+        ReadWriteMultipleRequest request = new ReadWriteMultipleRequest(0, readAddress, readCount, writeAddress, values.length);
+        request.setRegisters(regs);
+        return (ReadWriteMultipleResponse) execute(request);
+    }
 }
\ No newline at end of file
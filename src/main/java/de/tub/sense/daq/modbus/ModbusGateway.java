@@ -0,0 +1,270 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One connection to a modbus TCP endpoint, shared by all equipments with the same host and port. Equipments behind a
+ * gateway only differ in their unit id, each of them gets a view of the connection which sets its unit id on every
+ * request. At most a fixed number of requests of all equipments are in flight at the same time, equipments waiting
+ * for a free slot get it in turns, so a busy equipment does not starve the others.
+ * <p>
+ * The connection is opened by the first equipment connecting and closed when the last one disconnects. Its timeout
+ * is the largest timeout any of the equipments asks for. If the device behind one unit id stops answering, only the
+ * requests of that unit are failed. The connection is closed only if no unit got an answer recently either, so a
+ * single silent device behind a gateway does not disconnect the others.
+ *
+ * @created 17/10/2026 - 18:40
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class ModbusGateway {
+
+    private static final Map<String, ModbusGateway> GATEWAYS = new HashMap<>();
+
+    private final String name;
+    private final ModbusFunctionFactory transport;
+    private final int concurrency;
+    private final Set<Unit> connectedUnits = new LinkedHashSet<>();
+    /**
+     * Units with waiting requests, the first one gets the next free slot
+     */
+    private final ArrayDeque<Unit> turns = new ArrayDeque<>();
+    private int inFlight = 0;
+
+    private ModbusGateway(String name, ModbusFunctionFactory transport, int concurrency) {
+        this.name = name;
+        this.transport = transport;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Get the shared connection to a host and port, it is created with the settings of the first equipment using it
+     *
+     * @param host          of the endpoint
+     * @param port          of the endpoint
+     * @param concurrency   maximum number of requests in flight on the connection
+     * @param socketFactory creating the connection, which must not set a unit id itself
+     * @return the shared connection
+     * @throws Exception if the connection could not be created
+     */
+    public static synchronized ModbusGateway getInstance(String host, int port, int concurrency,
+                                                         PooledModbusSocket.SocketFactory socketFactory) throws Exception {
+        String name = host.toLowerCase(Locale.ROOT) + ":" + port;
+        ModbusGateway gateway = GATEWAYS.get(name);
+        if (gateway == null) {
+            gateway = new ModbusGateway(name, socketFactory.create(), concurrency);
+            GATEWAYS.put(name, gateway);
+        } else {
+            log.info("Sharing the connection to {} with {} request(s) in flight", name, gateway.concurrency);
+        }
+        return gateway;
+    }
+
+    /**
+     * Get a view of the connection for one equipment
+     *
+     * @param unitId of the equipment, set on every request
+     * @return transport of the equipment
+     */
+    public ModbusFunctionFactory unit(int unitId) {
+        return new Unit(unitId);
+    }
+
+    private synchronized boolean connect(Unit unit) throws Exception {
+        connectedUnits.add(unit);
+        return transport.connect();
+    }
+
+    private synchronized void disconnect(Unit unit) {
+        connectedUnits.remove(unit);
+        if (connectedUnits.isEmpty()) {
+            log.info("Last equipment disconnected from {}, closing the connection", name);
+            transport.disconnect();
+        }
+    }
+
+    /**
+     * Give up on the requests of a unit whose device stopped answering. If another unit got an answer within the
+     * probe interval, the connection itself is up and stays open. Otherwise it is closed for all units, they stay
+     * connected and open it again with their next connect.
+     *
+     * @param unit whose device stopped answering
+     */
+    private synchronized void abort(Unit unit) {
+        unit.failInFlight(new ModbusIOException("Device behind unit " + unit.unitId + " stopped answering"));
+        long now = System.nanoTime();
+        for (Unit connected : connectedUnits) {
+            if (connected != unit && now - connected.lastAnswer < TimeUnit.MILLISECONDS.toNanos(ConnectionManager.PROBE_INTERVAL)) {
+                log.info("Keeping the connection to {} open, other equipments still get answers", name);
+                return;
+            }
+        }
+        log.info("Closing the connection to {} of {} equipment(s)", name, connectedUnits.size());
+        transport.disconnect();
+    }
+
+    private synchronized boolean isConnected(Unit unit) {
+        return connectedUnits.contains(unit) && transport.isConnected();
+    }
+
+    /**
+     * Apply the largest timeout of the connected units to the connection
+     */
+    private synchronized void setTimeout(Unit unit, int timeout) {
+        unit.timeout = timeout;
+        int max = timeout;
+        for (Unit connected : connectedUnits) {
+            max = Math.max(max, connected.timeout);
+        }
+        transport.setTimeout(max);
+    }
+
+    /**
+     * Wait for a free slot of the connection and the turn of the unit
+     *
+     * @param unit sending the request
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private synchronized void acquire(Unit unit) throws InterruptedException {
+        if (unit.waiting++ == 0) {
+            turns.addLast(unit);
+        }
+        try {
+            while (inFlight >= concurrency || turns.peekFirst() != unit) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            if (--unit.waiting == 0) {
+                turns.remove(unit);
+            }
+            notifyAll();
+            throw e;
+        }
+        turns.removeFirst();
+        if (--unit.waiting > 0) {
+            turns.addLast(unit);
+        }
+        inFlight++;
+        notifyAll();
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * View of the connection for one unit id
+     */
+    private class Unit extends ModbusFunctionFactory {
+
+        private final int unitId;
+        private int waiting = 0;
+        private int timeout = 0;
+        /**
+         * {@link System#nanoTime()} of the last answer this unit got, the time of creation before the first one
+         */
+        private volatile long lastAnswer = System.nanoTime();
+        /**
+         * Requests of this unit sent and not completed yet
+         */
+        private final Set<CompletableFuture<ModbusResponse>> inFlightRequests = ConcurrentHashMap.newKeySet();
+
+        private Unit(int unitId) {
+            this.unitId = unitId;
+        }
+
+        @Override
+        protected ModbusResponse execute(ModbusRequest request) throws Exception {
+            return await(submit(request));
+        }
+
+        /**
+         * Send a request with the unit id of this view as soon as it is the turn of the unit
+         *
+         * @param request you want to execute
+         * @return future completed with the response of the request
+         */
+        @Override
+        public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+            request.setUnitID(unitId);
+            try {
+                acquire(this);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+                return future;
+            }
+            CompletableFuture<ModbusResponse> response;
+            try {
+                response = transport.submit(request);
+            } catch (RuntimeException e) {
+                release();
+                throw e;
+            }
+            inFlightRequests.add(response);
+            response.whenComplete((value, throwable) -> {
+                inFlightRequests.remove(response);
+                Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                if (cause == null || cause instanceof ModbusSlaveException) {
+                    lastAnswer = System.nanoTime();
+                }
+                release();
+            });
+            return response;
+        }
+
+        private void failInFlight(Exception cause) {
+            for (CompletableFuture<ModbusResponse> request : inFlightRequests) {
+                request.completeExceptionally(cause);
+            }
+        }
+
+        @Override
+        public boolean isAsynchronous() {
+            return transport.isAsynchronous();
+        }
+
+        @Override
+        public void setTimeout(int timeout) {
+            ModbusGateway.this.setTimeout(this, timeout);
+        }
+
+        @Override
+        public boolean connect() throws Exception {
+            return ModbusGateway.this.connect(this);
+        }
+
+        @Override
+        public void disconnect() {
+            ModbusGateway.this.disconnect(this);
+        }
+
+        @Override
+        public void abort() {
+            ModbusGateway.this.abort(this);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return ModbusGateway.this.isConnected(this);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package de.tub.sense.daq.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking modbus TCP engine shared by all equipments of the DAQ. A single selector thread connects, writes and
+ * reads the sockets of all {@link NioModbusSocket} instances, so the number of threads does not grow with the number
+ * of devices. Frames are encoded and decoded in pooled direct buffers.
+ *
+ * @created 17/10/2026 - 11:52
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class ModbusNioEngine implements Runnable {
+
+    private static ModbusNioEngine instance;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBufferPool bufferPool = new ByteBufferPool(MbapFrameCodec.MAX_FRAME_LENGTH, 4096);
+
+    private ModbusNioEngine() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Get the engine shared by all equipments, the selector thread is started on first use
+     *
+     * @return the shared engine
+     */
+    public static synchronized ModbusNioEngine getInstance() {
+        if (instance == null) {
+            try {
+                instance = new ModbusNioEngine();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open selector for modbus nio engine", e);
+            }
+            Thread thread = new Thread(instance, "modbus-nio");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    ByteBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Run a task on the selector thread. Registering channels and changing interest sets is only done there.
+     *
+     * @param task to run
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        log.info("Modbus nio engine started");
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid()) {
+                        ((NioModbusSocket) key.attachment()).onSelected(key);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Unexpected error in modbus nio engine", e);
+            }
+        }
+    }
+}
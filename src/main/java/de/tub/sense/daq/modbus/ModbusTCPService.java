@@ -1,19 +1,19 @@
 package de.tub.sense.daq.modbus;
 
-import com.ghgande.j2mod.modbus.msg.ReadCoilsResponse;
-import com.ghgande.j2mod.modbus.msg.ReadInputDiscretesResponse;
-import com.ghgande.j2mod.modbus.msg.ReadInputRegistersResponse;
-import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersResponse;
-import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
-import de.tub.sense.daq.config.xml.HardwareAddress;
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.*;
+import de.tub.sense.daq.config.xml.EquipmentAddress;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
+import java.net.UnknownHostException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author maxmeyer
@@ -25,282 +25,519 @@ import java.util.Optional;
 @NoArgsConstructor
 public class ModbusTCPService {
 
-    private TcpModbusSocket tcpModbusSocket;
+    private PrioritizedModbusSocket scheduler;
+    private ModbusFunctionFactory modbusSocket;
+    private ModbusFunctionFactory commandSocket;
+    /**
+     * Cleared as soon as the device rejects a mask write, bits are then written by reading and writing the register
+     */
+    private volatile boolean maskWriteSupported = true;
+    /**
+     * Cleared as soon as the device rejects a read/write multiple registers request, registers are then read back
+     * with a separate request after the write
+     */
+    private volatile boolean readWriteSupported = true;
+    private CommandQueue commandQueue;
+    private volatile ConnectionManager connectionManager;
+    /**
+     * Learned limits and costs of the read requests, kept over reconnects
+     */
+    @Getter
+    private final DeviceProfile deviceProfile = new DeviceProfile();
+    /**
+     * Block reads waiting for their response by register type and range, see {@link #blockKey(ReadBlock)}
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<int[]>> inFlightReads = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedReads = new AtomicLong();
+
+    /**
+     * Create a service sending all requests over the given transport without a connection manager, for the tests
+     *
+     * @param modbusSocket transport of the polls and the commands
+     */
+    ModbusTCPService(ModbusFunctionFactory modbusSocket) {
+        this.modbusSocket = modbusSocket;
+        this.commandSocket = modbusSocket;
+    }
 
     /**
      * Establish the connection to the ModbusTCPEndpoint. If it fails, it logs the exception.
      */
     public boolean connect(String host, int port, int unitId) {
+        return connect(new EquipmentAddress(host, port, unitId, 0));
+    }
+
+    /**
+     * Establish the connection to the ModbusTCPEndpoint with the transport configured in the equipment address.
+     * The connection is established in the background and kept up by a connection manager, this method only waits
+     * for it up to the timeout of the equipment. If it fails, it logs the exception.
+     *
+     * @param equipmentAddress with the connection settings
+     * @return true if the connection is established, false if it is not established yet
+     */
+    public boolean connect(EquipmentAddress equipmentAddress) {
         try {
-            tcpModbusSocket = new TcpModbusSocket(host, port, unitId);
-            tcpModbusSocket.connect();
+            if (scheduler == null) {
+                scheduler = new PrioritizedModbusSocket(createSocket(equipmentAddress), getTimeout(equipmentAddress),
+                        equipmentAddress.getMaxRetries(), deviceProfile);
+                modbusSocket = scheduler.lane(PrioritizedModbusSocket.Priority.POLL);
+                commandSocket = scheduler.lane(PrioritizedModbusSocket.Priority.COMMAND);
+            }
+            if (commandQueue == null) {
+                commandQueue = new CommandQueue(equipmentAddress.getHost() + ":" + equipmentAddress.getPort(), this,
+                        equipmentAddress.getWriteWindow());
+            }
+            if (connectionManager == null) {
+                connectionManager = new ConnectionManager(equipmentAddress.getHost() + ":" + equipmentAddress.getPort()
+                        + " unit " + equipmentAddress.getUnitId(), modbusSocket, scheduler);
+            }
+            connectionManager.start();
+            if (!connectionManager.awaitUp(getTimeout(equipmentAddress))) {
+                return false;
+            }
             log.info("Connection established with modbus host {} port {} and unitId {}",
-                    host, port, unitId);
+                    equipmentAddress.getHost(), equipmentAddress.getPort(), equipmentAddress.getUnitId());
             return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Throwable e) {
             log.error("Failed to initialize modbus tcp connection.", e);
             return false;
         }
     }
 
+    /**
+     * Get the transport of the equipment. Equipments with the same host and port share one connection, their
+     * requests are told apart by the unit id.
+     *
+     * @param equipmentAddress with the connection settings
+     * @return transport for the equipment
+     * @throws Exception if the connection can not be created
+     */
+    private ModbusFunctionFactory createSocket(EquipmentAddress equipmentAddress) throws Exception {
+        return ModbusGateway.getInstance(equipmentAddress.getHost(), equipmentAddress.getPort(), getConcurrency(equipmentAddress),
+                () -> createGatewaySocket(equipmentAddress)).unit(equipmentAddress.getUnitId());
+    }
+
+    /**
+     * Get the number of requests which may be in flight on the connection of the equipment at the same time
+     *
+     * @param equipmentAddress with the connection settings
+     * @return pipeline depth times the number of connections
+     */
+    private static int getConcurrency(EquipmentAddress equipmentAddress) {
+        return Math.max(1, equipmentAddress.getPipelineDepth()) * Math.max(1, equipmentAddress.getMaxConnections());
+    }
+
+    /**
+     * Create the connection for the connection settings. If more than one connection is allowed, the requests are
+     * spread over a pool of connections to the device. The unit id is set by the gateway for each request.
+     *
+     * @param equipmentAddress with the connection settings
+     * @return connection for the equipment
+     * @throws UnknownHostException if the host can not be resolved
+     */
+    private ModbusFunctionFactory createGatewaySocket(EquipmentAddress equipmentAddress) throws UnknownHostException {
+        if (equipmentAddress.getMaxConnections() > 1) {
+            log.info("Using a pool of {} connections", equipmentAddress.getMaxConnections());
+            return new PooledModbusSocket(equipmentAddress.getHost() + ":" + equipmentAddress.getPort(),
+                    equipmentAddress.getMaxConnections(), () -> createConnection(equipmentAddress));
+        }
+        return createConnection(equipmentAddress);
+    }
+
+    /**
+     * Create a single connection for the connection settings. The nio transport shares one selector thread between all
+     * equipments, the udp transport sends every request in its own datagram. A pipeline depth greater than one keeps
+     * several transactions in flight on the same connection.
+     *
+     * @param equipmentAddress with the connection settings
+     * @return connection to the equipment
+     * @throws UnknownHostException if the host can not be resolved
+     */
+    private ModbusFunctionFactory createConnection(EquipmentAddress equipmentAddress) throws UnknownHostException {
+        if (isNioTransport(equipmentAddress)) {
+            log.info("Using shared nio modbus tcp transport with pipeline depth {}", Math.max(1, equipmentAddress.getPipelineDepth()));
+            return new NioModbusSocket(ModbusNioEngine.getInstance(), equipmentAddress.getHost(), equipmentAddress.getPort(),
+                    0, equipmentAddress.getPipelineDepth(), getTimeout(equipmentAddress));
+        }
+        if (isUdpTransport(equipmentAddress)) {
+            log.info("Using modbus udp transport with pipeline depth {}", Math.max(1, equipmentAddress.getPipelineDepth()));
+            return new UdpModbusSocket(equipmentAddress.getHost(), equipmentAddress.getPort(),
+                    0, equipmentAddress.getPipelineDepth(), getTimeout(equipmentAddress));
+        }
+        if (equipmentAddress.getPipelineDepth() > 1) {
+            log.info("Using pipelined modbus tcp transport with pipeline depth {}", equipmentAddress.getPipelineDepth());
+            return new PipelinedTcpModbusSocket(equipmentAddress.getHost(), equipmentAddress.getPort(),
+                    0, equipmentAddress.getPipelineDepth(), getTimeout(equipmentAddress));
+        }
+        return new TcpModbusSocket(equipmentAddress.getHost(), equipmentAddress.getPort(), 0);
+    }
+
+    /**
+     * Get the configured timeout of the equipment, the timeout adapted to the measured round trip times never exceeds it
+     *
+     * @param equipmentAddress with the connection settings
+     * @return timeout in milliseconds
+     */
+    private static int getTimeout(EquipmentAddress equipmentAddress) {
+        return equipmentAddress.getTimeout() > 0 ? equipmentAddress.getTimeout() : PipelinedTcpModbusSocket.DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Check if the equipment is configured to use the shared nio transport
+     *
+     * @param equipmentAddress with the connection settings
+     * @return true if the transport is nio
+     */
+    public static boolean isNioTransport(EquipmentAddress equipmentAddress) {
+        return "nio".equalsIgnoreCase(equipmentAddress.getTransport());
+    }
+
+    /**
+     * Check if the equipment is configured to use the udp transport
+     *
+     * @param equipmentAddress with the connection settings
+     * @return true if the transport is udp
+     */
+    public static boolean isUdpTransport(EquipmentAddress equipmentAddress) {
+        return "udp".equalsIgnoreCase(equipmentAddress.getTransport());
+    }
+
+    /**
+     * Get the time commands waited for the modbus connection while it was busy with polling
+     *
+     * @return latency of the commands or empty if not connected yet
+     */
+    public Optional<LatencyStats> getCommandLatency() {
+        return scheduler == null ? Optional.empty() : Optional.of(scheduler.getCommandLatency());
+    }
+
+    /**
+     * Check if the connection is up, without waiting for a connection attempt
+     *
+     * @return true if the connection manager reports the connection up or degraded
+     */
     public boolean isConnected() {
-        if (tcpModbusSocket != null) {
-            TCPMasterConnection connection = tcpModbusSocket.getConnection();
-            return connection.isConnected();
+        ConnectionManager manager = connectionManager;
+        return manager != null && manager.isUp();
+    }
+
+    /**
+     * Get the state of the connection kept up in the background
+     *
+     * @return state of the connection or empty if not connected yet
+     */
+    public Optional<ConnectionManager.State> getConnectionState() {
+        ConnectionManager manager = connectionManager;
+        return manager == null ? Optional.empty() : Optional.of(manager.getState());
+    }
+
+    /**
+     * Queue a value to be written to the registers or the coil of a tag. Writes to adjacent registers arriving within
+     * the write window of the equipment are merged into one request.
+     *
+     * @param codec of the tag
+     * @param value to write
+     * @return future completed when the value is written or exceptionally if the write failed
+     */
+    public CompletableFuture<Void> putValue(TagCodec codec, Object value) {
+        CommandQueue queue = commandQueue;
+        if (queue == null) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("Not connected"));
+            return future;
         }
-        return false;
+        return queue.submit(codec, value);
     }
 
-    public void putValue(HardwareAddress hardwareAddress, Object value, String dataType) {
-        Object[] result = preDataProcessing(value, hardwareAddress, dataType).orElseThrow(RuntimeException::new);
-        if (hardwareAddress.getType().equals("coil")) {
-            try {
-                tcpModbusSocket.writeCoil(hardwareAddress.getStartAddress(), (boolean) result[0]);
-            } catch (Exception e) {
-                log.error("Could not write the value " + result[0] + " to register with startAddress " + hardwareAddress.getStartAddress(), e);
-            }
-        } else if (result.length == 1) {
+    /**
+     * Queue a value to be written to the registers or the coil of a tag and read a block of holding registers back
+     * right after the write.
+     *
+     * @param codec    of the tag
+     * @param value    to write
+     * @param readback block of holding registers to read back
+     * @return future completed with the raw register values of the readback block, with null if only the readback
+     * failed, or exceptionally if the write failed
+     */
+    public CompletableFuture<int[]> putValue(TagCodec codec, Object value, ReadBlock readback) {
+        CommandQueue queue = commandQueue;
+        if (queue == null) {
+            CompletableFuture<int[]> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("Not connected"));
+            return future;
+        }
+        return queue.submit(codec, value, readback);
+    }
+
+    /**
+     * Write a value to the registers or the coil of a tag. Boolean tags in a holding register change only their bit
+     * of the register.
+     *
+     * @param codec of the tag
+     * @param value to write
+     * @throws Exception if the value could not be written
+     */
+    void writeValue(TagCodec codec, Object value) throws Exception {
+        if (codec.getRegisterType() == RegisterType.COIL) {
+            commandSocket.writeCoil(codec.getStartAddress(), (boolean) value);
+            return;
+        }
+        if (codec.isRegisterBit()) {
+            writeRegisterBit(codec, (boolean) value);
+            return;
+        }
+        int[] words = codec.encode(value).orElseThrow(() -> new IllegalArgumentException("Cannot process data of type " + codec.getValueType() +
+                " for write value count " + codec.getWordCount() + " to " + codec.getRegisterType() + " register"));
+        writeRegisters(codec.getStartAddress(), words);
+    }
+
+    /**
+     * Write a value and read a block of holding registers back. Values filling whole holding registers are written
+     * and read back in one read/write multiple registers transaction. Coils, single bits and devices without support
+     * for read/write multiple registers need a separate read request after the write.
+     *
+     * @param codec    of the tag
+     * @param value    to write
+     * @param readback block of holding registers to read back
+     * @return raw register values of the readback block or null if the value was written but could not be read back
+     * @throws Exception if the value could not be written
+     */
+    int[] writeValueAndReadBack(TagCodec codec, Object value, ReadBlock readback) throws Exception {
+        if (readWriteSupported && codec.getRegisterType() == RegisterType.HOLDING && !codec.isRegisterBit()) {
+            int[] words = codec.encode(value).orElseThrow(() -> new IllegalArgumentException("Cannot process data of type " + codec.getValueType() +
+                    " for write value count " + codec.getWordCount() + " to " + codec.getRegisterType() + " register"));
             try {
-                tcpModbusSocket.writeRegister(hardwareAddress.getStartAddress(), (int) result[0]);
-            } catch (Exception e) {
-                log.error("Could not write the value " + result[0] + " to register with startAddress " + hardwareAddress.getStartAddress(), e);
+                return toWords(readback, commandSocket.readWriteRegisters(readback.getStartAddress(), readback.getCount(),
+                        codec.getStartAddress(), words));
+            } catch (ModbusSlaveException e) {
+                if (!e.isType(Modbus.ILLEGAL_FUNCTION_EXCEPTION)) {
+                    throw e;
+                }
+                log.info("Device does not support read/write multiple registers, reading registers back with a separate request");
+                readWriteSupported = false;
             }
+        }
+        writeValue(codec, value);
+        try {
+            return toWords(readback, ModbusFunctionFactory.await(commandSocket.readAsync(readback.getRegisterType(),
+                    readback.getStartAddress(), readback.getCount())));
+        } catch (Exception e) {
+            log.warn("Could not read back {} holding registers with startAddress {} after the write: {}",
+                    readback.getCount(), readback.getStartAddress(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write holding registers, a single register is written with write single register
+     *
+     * @param startAddress of the first register
+     * @param words        to write
+     * @throws Exception if the request fails
+     */
+    void writeRegisters(int startAddress, int[] words) throws Exception {
+        if (words.length == 1) {
+            commandSocket.writeRegister(startAddress, words[0]);
         } else {
-            int[] intResult = new int[result.length];
-            for (int i = 0; i < intResult.length; i++) {
-                intResult[i] = (int) result[i];
-            }
-            try {
-                tcpModbusSocket.writeRegisters(hardwareAddress.getStartAddress(), intResult);
-            } catch (Exception e) {
-                log.error("Could not write values " + Arrays.stream(intResult).toString() + " write to register with startAddress " + hardwareAddress.getStartAddress(), e);
-            }
+            commandSocket.writeRegisters(startAddress, words);
         }
     }
 
+    /**
+     * Write coils, a single coil is written with write single coil
+     *
+     * @param startAddress of the first coil
+     * @param values       to write
+     * @throws Exception if the request fails
+     */
+    void writeCoils(int startAddress, boolean[] values) throws Exception {
+        if (values.length == 1) {
+            commandSocket.writeCoil(startAddress, values[0]);
+        } else {
+            commandSocket.writeCoils(startAddress, values);
+        }
+    }
 
-    public Optional<Object> getValue(HardwareAddress hardwareAddress, String dataType) {
-        switch (hardwareAddress.getType()) {
-            case "holding32":
-            case "holding64":
-            case "holding":
-                try {
-                    return Optional.of(parseHoldingResponse(tcpModbusSocket.readHoldingRegisters(hardwareAddress.getStartAddress(),
-                            hardwareAddress.getValueCount()), dataType, hardwareAddress));
-                } catch (Exception e) {
-                    log.warn("Could not read holding register with startAddress " + hardwareAddress.getStartAddress(), e);
-                    return Optional.empty();
-                }
-            case "coil":
-                try {
-                    return Optional.of(parseCoilResponse(tcpModbusSocket.readCoils(hardwareAddress.getStartAddress(), hardwareAddress.getValueCount())));
-                } catch (Exception e) {
-                    log.warn("Could not read coil with startAddress " + hardwareAddress.getStartAddress(), e);
-                    return Optional.empty();
-                }
-            case "input":
-                try {
-                    return Optional.of(parseInputResponse(tcpModbusSocket.readInputRegisters(hardwareAddress.getStartAddress(), hardwareAddress.getValueCount()), dataType, hardwareAddress));
-                } catch (Exception e) {
-                    log.warn("Could not read input register with startAddress " + hardwareAddress.getStartAddress(), e);
-                    return Optional.empty();
-                }
-            case "discrete":
-                try {
-                    return Optional.of(parseDiscreteInputResponse(tcpModbusSocket.readDiscreteInputs(hardwareAddress.getStartAddress(), hardwareAddress.getValueCount())));
-                } catch (Exception e) {
-                    log.warn("Could not discrete input register with startAddress " + hardwareAddress.getStartAddress(), e);
+    /**
+     * Change a single bit of a holding register with a mask write. If the device does not support mask writes, the
+     * register is read and written back instead.
+     *
+     * @param codec of the boolean tag
+     * @param value of the bit
+     * @throws Exception if the bit could not be written
+     */
+    private void writeRegisterBit(TagCodec codec, boolean value) throws Exception {
+        if (maskWriteSupported) {
+            try {
+                commandSocket.maskWriteRegister(codec.getStartAddress(), codec.getAndMask(), codec.getOrMask(value));
+                return;
+            } catch (ModbusSlaveException e) {
+                if (!e.isType(Modbus.ILLEGAL_FUNCTION_EXCEPTION)) {
+                    throw e;
                 }
-            default:
-                log.warn("Modbus type {} not valid.", hardwareAddress.getType());
-                return Optional.empty();
+                log.info("Device does not support mask write register, writing bits by reading and writing the register");
+                maskWriteSupported = false;
+            }
         }
+        readModifyWriteRegisterBit(codec, value);
     }
 
-    public void disconnect() {
-        tcpModbusSocket.disconnect();
+    /**
+     * Change a single bit of a holding register by reading the register and writing it back
+     *
+     * @param codec of the boolean tag
+     * @param value of the bit
+     * @throws Exception if the register could not be read or written
+     */
+    private void readModifyWriteRegisterBit(TagCodec codec, boolean value) throws Exception {
+        int registerValue = commandSocket.readHoldingRegisters(codec.getStartAddress(), 1).getRegisterValue(0);
+        int newValue = codec.applyBit(registerValue, value);
+        if (log.isTraceEnabled()) {
+            log.trace("Bit number {} before: {} after: {}", codec.getBitNumber(),
+                    Integer.toBinaryString(registerValue), Integer.toBinaryString(newValue));
+        }
+        commandSocket.writeRegister(codec.getStartAddress(), newValue);
     }
 
     /**
-     * Parse a holding register response to a object of the given data type
+     * Read all registers of a block with a single request. For coil and discrete input blocks every bit is
+     * returned as one value of 0 or 1.
      *
-     * @param response to parse
-     * @param dataType expected from the response
-     * @return object instance of the given data type parsed from the holding register response
+     * @param block to read
+     * @return raw register or bit values of the block or empty if the request failed
      */
-    private Object parseHoldingResponse(ReadMultipleRegistersResponse response, String dataType, HardwareAddress hardwareAddress) {
-        final Integer[] respValues = new Integer[response.getByteCount()];
-        final ByteBuffer bb = ByteBuffer.allocate(2 * response.getByteCount());
-        for (int i = 0; i < response.getWordCount(); i++) {
-            respValues[i] = response.getRegisterValue(i);
-            bb.putShort(respValues[i].shortValue());
-        }
-        bb.rewind();
-        return parseResponse(bb, dataType, hardwareAddress);
+    public Optional<int[]> readBlock(ReadBlock block) {
+        return awaitBlock(block, readBlockAsync(block));
     }
 
-    private Object parseInputResponse(ReadInputRegistersResponse response, String dataType, HardwareAddress hardwareAddress) {
-        final Integer[] respValues = new Integer[response.getByteCount()];
-        final ByteBuffer bb = ByteBuffer.allocate(2 * response.getByteCount());
-        for (int i = 0; i < response.getWordCount(); i++) {
-            respValues[i] = response.getRegisterValue(i);
-            bb.putShort(respValues[i].shortValue());
+    /**
+     * Send the read request for a block without waiting for the response, so the requests of several blocks can be
+     * in flight at the same time if the transport supports it. A block whose registers are already being read joins
+     * the request in flight instead of sending another one, it gets a copy of the values read.
+     *
+     * @param block to read
+     * @return future completed with the raw register or bit values of the block
+     */
+    public CompletableFuture<int[]> readBlockAsync(ReadBlock block) {
+        long key = blockKey(block);
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        CompletableFuture<int[]> inFlight = inFlightReads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            coalescedReads.incrementAndGet();
+            return inFlight.thenApply(int[]::clone);
         }
-        bb.rewind();
-        return parseResponse(bb, dataType, hardwareAddress);
+        try {
+            modbusSocket.readAsync(block.getRegisterType(), block.getStartAddress(), block.getCount())
+                    .thenApply(response -> toWords(block, response))
+                    .whenComplete((words, e) -> {
+                        inFlightReads.remove(key, future);
+                        if (e != null) {
+                            future.completeExceptionally(e);
+                        } else {
+                            future.complete(words);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            inFlightReads.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
-    private boolean parseDiscreteInputResponse(ReadInputDiscretesResponse response) {
-        return response.getDiscreteStatus(0);
+    /**
+     * Get the number of block reads which joined a request in flight for the same registers and reset it
+     *
+     * @return coalesced block reads since the last call
+     */
+    public long takeCoalescedReads() {
+        return coalescedReads.getAndSet(0);
     }
 
-    private Object parseResponse(ByteBuffer buffer, String dataType, HardwareAddress hardwareAddress) {
-
-        switch (dataType) {
-            case "bool":
-            case "java.lang.Boolean":
-                short s = buffer.getShort();
-                return readBooleanFromShort(s, hardwareAddress.getBitNumber());
-            case "s8":
-            case "u8":
-            case "java.lang.Byte":
-                return buffer.get();
-            case "s16":
-            case "u16":
-            case "java.lang.Short":
-                return buffer.getShort();
-            case "u32":
-            case "s32":
-            case "java.lang.Integer":
-                return buffer.getInt();
-            case "s64":
-            case "u64":
-            case "java.lang.Long":
-                return buffer.getLong();
-            case "float32":
-            case "java.lang.Float":
-                return buffer.getFloat();
-            case "java.lang.Double":
-            case "float64":
-                return buffer.getDouble();
-            default:
-                throw new IllegalArgumentException("Datatype " + dataType + " could not be converted");
-        }
+    /**
+     * Identify the registers of a block, the start address and the count both fit into 16 bits
+     *
+     * @param block to identify
+     * @return register type, start address and count of the block in one long
+     */
+    private static long blockKey(ReadBlock block) {
+        return ((long) block.getRegisterType().ordinal() << 32) | ((long) block.getStartAddress() << 16) | block.getCount();
     }
 
     /**
-     * Parses a coil response to a single boolean or a boolean array
+     * Wait for the read request of a block. Rejected requests are only logged on debug level, the caller isolates the
+     * rejected tags.
      *
-     * @param response to parse
-     * @return single boolean or boolean array depending on the response
+     * @param block  which is read
+     * @param future of the read request
+     * @return raw register or bit values of the block or empty if the request failed
      */
-    private boolean parseCoilResponse(@NonNull ReadCoilsResponse response) {
-        return response.getCoilStatus(0);
+    public Optional<int[]> awaitBlock(ReadBlock block, CompletableFuture<int[]> future) {
+        try {
+            return Optional.of(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            ReadFailure failure = ReadFailure.of(e.getCause());
+            if (failure.isRejected()) {
+                log.debug("Device rejected reading {} block with startAddress {} and count {}: {}",
+                        block.getRegisterType(), block.getStartAddress(), block.getCount(), e.getCause().getMessage());
+            } else {
+                log.warn("Could not read {} block with startAddress {} and count {}: {}",
+                        block.getRegisterType(), block.getStartAddress(), block.getCount(), e.getCause().getMessage());
+            }
+            return Optional.empty();
+        }
     }
 
-    public Optional<Object[]> preDataProcessing(final Object writeValue, HardwareAddress hardwareAddress, String dataType) {
-        if (hardwareAddress.getType().equalsIgnoreCase("holding32") || hardwareAddress.getType().equalsIgnoreCase("holding64") || hardwareAddress.getType().equalsIgnoreCase("holding")) {
-            final Integer[] result = new Integer[hardwareAddress.getValueCount()];
-            ByteBuffer bb = ByteBuffer.allocate(2 * hardwareAddress.getValueCount());
-            byte[] bytes = null;
-            switch (hardwareAddress.getValueCount()) {
-                case 4:
-                    if (dataType.equals(Long.class.getCanonicalName())) {
-                        Number num = (Number) writeValue;
-                        bytes = bb.putLong(num.longValue()).array();
-                        break;
-                    }
-                    if (dataType.equals(Double.class.getCanonicalName())) {
-                        Number num = (Number) writeValue;
-                        bytes = bb.putDouble(num.doubleValue()).array();
-                    }
-                    break;
-                case 2:
-                    if (dataType.equals(Integer.class.getCanonicalName())) {
-                        bytes = bb.putInt((Integer) writeValue).array();
-                        break;
-                    }
-                    if (dataType.equals(Long.class.getCanonicalName())) {
-                        Number num = (Number) writeValue;
-                        bytes = bb.putInt(num.intValue()).array();
-                        break;
-                    }
-                    if (dataType.equals(Float.class.getCanonicalName())) {
-                        Number num = (Number) writeValue;
-                        bytes = bb.putFloat(num.floatValue()).array();
-                    }
-                    break;
-                case 1:
-                    if (dataType.equals(Short.class.getCanonicalName())) {
-                        Number num = (Number) writeValue;
-                        bytes = bb.putShort(num.shortValue()).array();
-                        break;
-                    }
-                    if (dataType.equals(Boolean.class.getCanonicalName())) {
-                        try {
-                            short registerValue = (short) getValue(hardwareAddress, "java.lang.Short").orElseThrow(RuntimeException::new);
-                            if (log.isTraceEnabled()) {
-                                log.trace("Register value before: {}", registerValue);
-                            }
-                            byte[] shortInBytes = new byte[2];
-                            shortInBytes[0] = (byte) (registerValue & 0xff);
-                            shortInBytes[1] = (byte) ((registerValue >> 8) & 0xff);
-                            if (log.isTraceEnabled()) {
-                                log.trace("Before Bit number {} : {}", hardwareAddress.getBitNumber(), Integer.toBinaryString(registerValue));
-                            }
-                            if (hardwareAddress.getBitNumber() <= 7) {
-                                if ((boolean) writeValue) {
-                                    shortInBytes[0] |= 1L << hardwareAddress.getBitNumber(); //TRUE
-                                } else {
-                                    shortInBytes[0] &= ~(1 << hardwareAddress.getBitNumber());
-
-                                }
-                            } else {
-                                if ((boolean) writeValue) {
-                                    shortInBytes[1] |= 1L << hardwareAddress.getBitNumber() - 8;
-                                } else {
-                                    shortInBytes[1] &= ~(1 << hardwareAddress.getBitNumber() - 8);
-                                }
-                            }
-                            if (log.isTraceEnabled()) {
-                                log.trace("After Bit number {}: {}", hardwareAddress.getBitNumber(), Integer.toBinaryString(ByteBuffer.wrap(shortInBytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get()));
-                            }
-                            Object[] result2 = new Object[1];
-                            result2[0] = (int) ByteBuffer.wrap(shortInBytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get();
-                            if (log.isTraceEnabled()) {
-                                log.trace("Holding result {}", result2[0]);
-                            }
-                            return Optional.of(result2);
-                        } catch (Exception e) {
-                            log.error("Error while retrieving value for modbus holding register address " + hardwareAddress.getStartAddress(), e);
-                            return Optional.empty();
-                        }
-                    }
-                    break;
+    private int[] toWords(ReadBlock block, ModbusResponse response) {
+        int[] words = block.getWords();
+        if (response instanceof ReadMultipleRegistersResponse) {
+            ReadMultipleRegistersResponse holdingResponse = (ReadMultipleRegistersResponse) response;
+            for (int i = 0; i < words.length; i++) {
+                words[i] = holdingResponse.getRegisterValue(i);
             }
-            if (bytes != null) {
-                for (int i = 0; i < hardwareAddress.getValueCount(); i++) {
-                    short aShort = ByteBuffer.wrap(Arrays.copyOfRange(bytes, 2 * i, 2 * i + 2)).getShort();
-                    result[i] = (aShort < 0) ? (aShort + 65536) : aShort;
-                }
-                if (log.isTraceEnabled()) {
-                    log.trace(Arrays.toString(result));
-                }
-                return Optional.of(result);
+        } else if (response instanceof ReadWriteMultipleResponse) {
+            ReadWriteMultipleResponse readWriteResponse = (ReadWriteMultipleResponse) response;
+            for (int i = 0; i < words.length; i++) {
+                words[i] = readWriteResponse.getRegisterValue(i);
+            }
+        } else if (response instanceof ReadInputRegistersResponse) {
+            ReadInputRegistersResponse inputResponse = (ReadInputRegistersResponse) response;
+            for (int i = 0; i < words.length; i++) {
+                words[i] = inputResponse.getRegisterValue(i);
+            }
+        } else if (response instanceof ReadCoilsResponse) {
+            ReadCoilsResponse coilsResponse = (ReadCoilsResponse) response;
+            for (int i = 0; i < words.length; i++) {
+                words[i] = coilsResponse.getCoilStatus(i) ? 1 : 0;
             }
-            throw new RuntimeException("preDataProcessing: Cannot process data of type " + dataType +
-                    " for write value count " + hardwareAddress.getValueCount() +
-                    " from holding/holding32/holding64 register");
-        } else if (hardwareAddress.getType().equalsIgnoreCase("coil")) {
-            return Optional.of(new Boolean[]{(boolean) writeValue});
+        } else if (response instanceof ReadInputDiscretesResponse) {
+            ReadInputDiscretesResponse discretesResponse = (ReadInputDiscretesResponse) response;
+            for (int i = 0; i < words.length; i++) {
+                words[i] = discretesResponse.getDiscreteStatus(i) ? 1 : 0;
+            }
+        } else {
+            throw new IllegalStateException("Unexpected response " + response.getClass().getSimpleName()
+                    + " for " + block.getRegisterType() + " block");
         }
-        return Optional.empty();
+        return words;
     }
 
-    private boolean readBooleanFromShort(short encoded, int index) {
-        if (log.isTraceEnabled()) {
-            log.trace("Reading index {} from {}", index, Integer.toBinaryString(encoded));
+    public void disconnect() {
+        if (commandQueue != null) {
+            commandQueue.close();
+            commandQueue = null;
+        }
+        if (connectionManager != null) {
+            connectionManager.close();
+            connectionManager = null;
+        }
+        if (modbusSocket != null) {
+            modbusSocket.disconnect();
         }
-        return (encoded & (1L << index)) != 0;
     }
 }
@@ -0,0 +1,272 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modbus TCP transport driven by the shared {@link ModbusNioEngine}. Requests are encoded into pooled buffers and
+ * queued for the selector thread, which writes them and matches the responses by their MBAP transaction id. No thread
+ * is blocked or owned per device.
+ *
+ * @created 17/10/2026 - 12:10
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class NioModbusSocket extends ModbusFunctionFactory {
+
+    private final ModbusNioEngine engine;
+    private final InetSocketAddress address;
+    private final int unitId;
+    private final int timeout;
+    private final PendingTransactions pending;
+    private final Queue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<>();
+    private volatile SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer readBuffer;
+    private CompletableFuture<Void> pendingConnect;
+
+    public NioModbusSocket(ModbusNioEngine engine, String host, int port, int unitId, int pipelineDepth) {
+        this(engine, host, port, unitId, pipelineDepth, PipelinedTcpModbusSocket.DEFAULT_TIMEOUT);
+    }
+
+    public NioModbusSocket(ModbusNioEngine engine, String host, int port, int unitId, int pipelineDepth, int timeout) {
+        this.engine = engine;
+        this.address = new InetSocketAddress(host, port);
+        this.unitId = unitId;
+        this.timeout = timeout;
+        this.pending = new PendingTransactions(pipelineDepth, timeout);
+    }
+
+    /**
+     * Open a non-blocking channel, register it with the engine and wait until it is connected
+     *
+     * @return true if connection success
+     * @throws Exception if the connection could not be established in time
+     */
+    @Override
+    public synchronized boolean connect() throws Exception {
+        if (isConnected()) {
+            return true;
+        }
+        SocketChannel newChannel = SocketChannel.open();
+        newChannel.configureBlocking(false);
+        newChannel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        CompletableFuture<Void> connected = new CompletableFuture<>();
+        channel = newChannel;
+        engine.execute(() -> {
+            try {
+                if (newChannel.connect(address)) {
+                    register(newChannel, SelectionKey.OP_READ);
+                    connected.complete(null);
+                } else {
+                    pendingConnect = connected;
+                    register(newChannel, SelectionKey.OP_CONNECT);
+                }
+            } catch (IOException e) {
+                connected.completeExceptionally(e);
+            }
+        });
+        try {
+            connected.get(timeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (Exception e) {
+            Exception cause = e instanceof ExecutionException && e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            engine.execute(() -> close(newChannel, cause));
+            throw new ModbusIOException("Connection failed [" + address + "]: " + cause.getMessage());
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        SocketChannel current = channel;
+        if (current != null) {
+            engine.execute(() -> close(current, new ModbusIOException("Connection closed")));
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        SocketChannel current = channel;
+        return current != null && current.isOpen() && current.isConnected();
+    }
+
+    /**
+     * Execute a modbus request and wait for its response
+     *
+     * @param request you want to execute
+     * @return response of the request
+     * @throws Exception if something goes wrong while executing
+     */
+    @Override
+    protected ModbusResponse execute(ModbusRequest request) throws Exception {
+        return await(submit(request));
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        pending.setTimeout(timeout);
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    /**
+     * Queue a request for the selector thread as soon as a pipeline slot is free. The calling thread never waits
+     * for a slot, requests not fitting into the pipeline are sent when an earlier one completes.
+     *
+     * @param request you want to execute
+     * @return future completed with the response, or exceptionally on timeout or connection loss
+     */
+    @Override
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        try {
+            connect();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        if (this.unitId > 0) request.setUnitID(this.unitId);
+        pending.beginAsync(future, id -> send(request, id));
+        return future;
+    }
+
+    private void send(ModbusRequest request, int id) {
+        ByteBuffer frame = engine.getBufferPool().acquire();
+        MbapFrameCodec.encode(request, id, frame);
+        frame.flip();
+        outgoing.add(frame);
+        engine.execute(this::enableWrite);
+    }
+
+    private SelectionKey register(SocketChannel newChannel, int ops) throws IOException {
+        key = newChannel.register(engine.getSelector(), ops, this);
+        readBuffer = engine.getBufferPool().acquire();
+        return key;
+    }
+
+    private void enableWrite() {
+        if (key != null && key.isValid() && key.channel() == channel) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Handle a selected key on the selector thread
+     *
+     * @param selected key of this socket
+     */
+    void onSelected(SelectionKey selected) {
+        SocketChannel selectedChannel = (SocketChannel) selected.channel();
+        try {
+            if (selected.isConnectable()) {
+                if (!selectedChannel.finishConnect()) {
+                    return;
+                }
+                selected.interestOps(SelectionKey.OP_READ | (outgoing.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+                if (pendingConnect != null) {
+                    pendingConnect.complete(null);
+                    pendingConnect = null;
+                }
+            }
+            if (selected.isValid() && selected.isWritable()) {
+                writeFrames(selectedChannel, selected);
+            }
+            if (selected.isValid() && selected.isReadable()) {
+                readFrames(selectedChannel);
+            }
+        } catch (IOException e) {
+            log.warn("Connection to {} lost: {}", address, e.getMessage());
+            close(selectedChannel, e);
+        }
+    }
+
+    private void writeFrames(SocketChannel selectedChannel, SelectionKey selected) throws IOException {
+        ByteBuffer frame;
+        while ((frame = outgoing.peek()) != null) {
+            selectedChannel.write(frame);
+            if (frame.hasRemaining()) {
+                return;
+            }
+            outgoing.poll();
+            engine.getBufferPool().release(frame);
+        }
+        selected.interestOps(selected.interestOps() & ~SelectionKey.OP_WRITE);
+    }
+
+    private void readFrames(SocketChannel selectedChannel) throws IOException {
+        if (selectedChannel.read(readBuffer) < 0) {
+            throw new IOException("Connection closed by device");
+        }
+        readBuffer.flip();
+        while (readBuffer.remaining() >= MbapFrameCodec.HEADER_LENGTH) {
+            int length = MbapFrameCodec.frameLength(readBuffer);
+            if (length <= MbapFrameCodec.HEADER_LENGTH || length > MbapFrameCodec.MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (readBuffer.remaining() < length) {
+                break;
+            }
+            int end = readBuffer.position() + length;
+            ByteBuffer frame = readBuffer.duplicate();
+            frame.limit(end);
+            pending.complete(frame);
+            readBuffer.position(end);
+        }
+        readBuffer.compact();
+    }
+
+    /**
+     * Close a channel, fail the requests waiting for a response and return the buffers to the pool.
+     * Only called on the selector thread.
+     *
+     * @param toClose channel to close
+     * @param cause   to complete the pending requests with
+     */
+    private void close(SocketChannel toClose, Exception cause) {
+        try {
+            toClose.close();
+        } catch (IOException e) {
+            log.debug("Could not close channel", e);
+        }
+        if (channel != toClose) {
+            return;
+        }
+        channel = null;
+        if (pendingConnect != null) {
+            pendingConnect.completeExceptionally(cause);
+            pendingConnect = null;
+        }
+        pending.failAll(cause);
+        ByteBuffer frame;
+        while ((frame = outgoing.poll()) != null) {
+            engine.getBufferPool().release(frame);
+        }
+        if (readBuffer != null) {
+            engine.getBufferPool().release(readBuffer);
+            readBuffer = null;
+        }
+        key = null;
+    }
+}
@@ -0,0 +1,165 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Book keeping of the transactions a transport has in flight. Limits the number of outstanding requests to the
+ * pipeline depth, assigns the MBAP transaction ids, fails requests which are not answered in time and completes
+ * requests with the decoded response frames. Asynchronous transports queue the requests which do not fit into the
+ * pipeline instead of waiting for a free slot, they are sent as soon as a transaction in flight completes.
+ *
+ * @created 17/10/2026 - 11:30
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+class PendingTransactions {
+
+    private static final ScheduledExecutorService TIMEOUT_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("modbus-timeout").setDaemon(true).build());
+
+    private final Semaphore pipeline;
+    private volatile int timeout;
+    private final Map<Integer, CompletableFuture<ModbusResponse>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger transactionId = new AtomicInteger();
+    /**
+     * Requests waiting for a free pipeline slot, see {@link #beginAsync(CompletableFuture, IntConsumer)}
+     */
+    private final Queue<Waiting> waiting = new ConcurrentLinkedQueue<>();
+
+    PendingTransactions(int pipelineDepth, int timeout) {
+        this.pipeline = new Semaphore(Math.max(1, pipelineDepth));
+        this.timeout = timeout;
+    }
+
+    /**
+     * Change the timeout of transactions which are registered from now on
+     *
+     * @param timeout in milliseconds
+     */
+    void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Wait for a free pipeline slot and register a new transaction
+     *
+     * @param future to complete with the response
+     * @return transaction id to send with the request
+     * @throws InterruptedException if interrupted while waiting for a free slot
+     */
+    int begin(CompletableFuture<ModbusResponse> future) throws InterruptedException {
+        pipeline.acquire();
+        return register(future);
+    }
+
+    /**
+     * Register a new transaction as soon as a pipeline slot is free, without waiting for it. If the pipeline is full,
+     * the request is queued and sent by the thread completing a transaction in flight.
+     *
+     * @param future to complete with the response
+     * @param send   sending the request with the transaction id it is given
+     */
+    void beginAsync(CompletableFuture<ModbusResponse> future, IntConsumer send) {
+        waiting.add(new Waiting(future, send));
+        startWaiting();
+    }
+
+    /**
+     * Send waiting requests while pipeline slots are free. Called after a request is queued and after a slot is
+     * released, so no request waits while a slot is free.
+     */
+    private void startWaiting() {
+        while (!waiting.isEmpty() && pipeline.tryAcquire()) {
+            Waiting next = waiting.poll();
+            if (next == null) {
+                pipeline.release();
+                return;
+            }
+            if (next.future.isDone()) {
+                pipeline.release();
+                continue;
+            }
+            next.send.accept(register(next.future));
+        }
+    }
+
+    /**
+     * Register a transaction which holds a pipeline slot, the slot is released when the transaction completes
+     *
+     * @param future to complete with the response
+     * @return transaction id to send with the request
+     */
+    private int register(CompletableFuture<ModbusResponse> future) {
+        int id = transactionId.incrementAndGet() & 0xFFFF;
+        int timeout = this.timeout;
+        pending.put(id, future);
+        ScheduledFuture<?> timeoutTask = TIMEOUT_EXECUTOR.schedule(() -> future.completeExceptionally(
+                new ModbusIOException("Response timeout after " + timeout + "ms for transaction " + id)), timeout, TimeUnit.MILLISECONDS);
+        future.whenComplete((response, throwable) -> {
+            timeoutTask.cancel(false);
+            pending.remove(id, future);
+            pipeline.release();
+            startWaiting();
+        });
+        return id;
+    }
+
+    /**
+     * Complete the transaction a response frame belongs to
+     *
+     * @param frame positioned at the start of the MBAP header and limited to the end of the frame
+     */
+    void complete(ByteBuffer frame) {
+        int id = MbapFrameCodec.transactionId(frame);
+        CompletableFuture<ModbusResponse> future = pending.remove(id);
+        if (future == null) {
+            log.debug("Discarding response for unknown transaction {}", id);
+            return;
+        }
+        try {
+            future.complete(MbapFrameCodec.decode(frame));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Fail all transactions still waiting for a response, e.g. because the connection is lost
+     *
+     * @param cause to complete the transactions with
+     */
+    void failAll(Exception cause) {
+        Waiting next;
+        while ((next = waiting.poll()) != null) {
+            next.future.completeExceptionally(cause);
+        }
+        for (Integer id : pending.keySet()) {
+            CompletableFuture<ModbusResponse> future = pending.remove(id);
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private static class Waiting {
+
+        private final CompletableFuture<ModbusResponse> future;
+        private final IntConsumer send;
+
+        private Waiting(CompletableFuture<ModbusResponse> future, IntConsumer send) {
+            this.future = future;
+            this.send = send;
+        }
+    }
+}
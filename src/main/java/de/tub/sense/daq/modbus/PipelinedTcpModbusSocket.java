@@ -0,0 +1,192 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modbus TCP transport which keeps several transactions in flight on one socket. Requests are written as soon as
+ * a pipeline slot is free, a reader thread matches the responses to the requests by their MBAP transaction id.
+ *
+ * @created 17/10/2026 - 10:40
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class PipelinedTcpModbusSocket extends ModbusFunctionFactory {
+
+    /**
+     * Default time in milliseconds to wait for a response, same as the j2mod default
+     */
+    public static final int DEFAULT_TIMEOUT = 3000;
+
+    private final InetAddress address;
+    private final int port;
+    private final int unitId;
+    private final int timeout;
+    private final PendingTransactions pending;
+    private volatile Socket socket;
+    private OutputStream out;
+
+    public PipelinedTcpModbusSocket(String host, int port, int unitId, int pipelineDepth) throws UnknownHostException {
+        this(host, port, unitId, pipelineDepth, DEFAULT_TIMEOUT);
+    }
+
+    public PipelinedTcpModbusSocket(String host, int port, int unitId, int pipelineDepth, int timeout) throws UnknownHostException {
+        this.address = InetAddress.getByName(host);
+        this.port = port;
+        this.unitId = unitId;
+        this.timeout = timeout;
+        this.pending = new PendingTransactions(pipelineDepth, timeout);
+    }
+
+    /**
+     * Open the socket and start the thread reading the responses
+     *
+     * @return true if connection success false if not
+     * @throws IOException if the socket could not be opened
+     */
+    @Override
+    public synchronized boolean connect() throws IOException {
+        if (isConnected()) {
+            return true;
+        }
+        Socket newSocket = new Socket();
+        newSocket.setTcpNoDelay(true);
+        newSocket.connect(new InetSocketAddress(address, port), timeout);
+        out = new BufferedOutputStream(newSocket.getOutputStream());
+        socket = newSocket;
+        Thread reader = new Thread(() -> readResponses(newSocket),
+                "modbus-reader-" + address.getHostAddress() + ":" + port);
+        reader.setDaemon(true);
+        reader.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        close(socket, new ModbusIOException("Connection closed"));
+    }
+
+    @Override
+    public boolean isConnected() {
+        Socket current = socket;
+        return current != null && current.isConnected() && !current.isClosed();
+    }
+
+    /**
+     * Execute a modbus request and wait for its response
+     *
+     * @param request you want to execute
+     * @return response of the request
+     * @throws Exception if something goes wrong while executing
+     */
+    @Override
+    protected ModbusResponse execute(ModbusRequest request) throws Exception {
+        return await(submit(request));
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        pending.setTimeout(timeout);
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    /**
+     * Write a request to the socket as soon as a pipeline slot is free. Blocks the caller while the pipeline is full.
+     *
+     * @param request you want to execute
+     * @return future completed with the response, or exceptionally on timeout or connection loss
+     */
+    @Override
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        int id;
+        try {
+            connect();
+            id = pending.begin(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        } catch (Exception e) {
+            future.completeExceptionally(new ModbusIOException("Connection failed [" + address + ":" + port + "]"));
+            return future;
+        }
+        if (this.unitId > 0) request.setUnitID(this.unitId);
+        Socket current = socket;
+        try {
+            synchronized (this) {
+                out.write(MbapFrameCodec.encode(request, id));
+                out.flush();
+            }
+        } catch (Exception e) {
+            log.warn("Could not write request to {}:{}: {}", address, port, e.getMessage());
+            close(current, e);
+        }
+        return future;
+    }
+
+    /**
+     * Read frames from the socket until it is closed and complete the pending request of each frame
+     *
+     * @param source socket to read from
+     */
+    private void readResponses(Socket source) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(source.getInputStream()));
+            byte[] frame = new byte[MbapFrameCodec.MAX_FRAME_LENGTH];
+            while (!source.isClosed()) {
+                in.readFully(frame, 0, MbapFrameCodec.HEADER_LENGTH);
+                ByteBuffer buffer = ByteBuffer.wrap(frame);
+                int length = MbapFrameCodec.frameLength(buffer);
+                if (length <= MbapFrameCodec.HEADER_LENGTH || length > frame.length) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                in.readFully(frame, MbapFrameCodec.HEADER_LENGTH, length - MbapFrameCodec.HEADER_LENGTH);
+                buffer.limit(length);
+                pending.complete(buffer);
+            }
+        } catch (IOException e) {
+            if (!source.isClosed()) {
+                log.warn("Connection to {}:{} lost: {}", address, port, e.getMessage());
+            }
+            close(source, e);
+        }
+    }
+
+    /**
+     * Close a socket and fail all requests still waiting for a response
+     *
+     * @param toClose socket to close
+     * @param cause   to complete the pending requests with
+     */
+    private synchronized void close(Socket toClose, Exception cause) {
+        if (toClose == null) {
+            return;
+        }
+        try {
+            toClose.close();
+        } catch (IOException e) {
+            log.debug("Could not close socket", e);
+        }
+        if (socket != toClose) {
+            return;
+        }
+        socket = null;
+        pending.failAll(cause);
+    }
+}
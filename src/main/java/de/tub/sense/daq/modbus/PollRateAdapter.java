@@ -0,0 +1,129 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapts the poll interval of a tag to how often its value changes. Every tag starts at the minimum interval. After a
+ * number of reads without change the interval is doubled, up to the maximum interval, every read with a change halves
+ * it again. Commands reset the tags they affect to the minimum interval. The state is kept in the tag state store
+ * under the slot of the tag and written under its monitor, so it is shared by all plans reading a tag.
+ *
+ * @created 17/10/2026 - 20:15
+ * @project DAQConfigLoader
+ */
+
+public class PollRateAdapter {
+
+    /**
+     * Number of reads without change after which the poll interval of a tag is doubled
+     */
+    static final int STABLE_READS = 4;
+
+    private final long minInterval;
+    private final long maxInterval;
+    private final int maxLevel;
+    private final TagStateStore store;
+
+    /**
+     * @param minInterval of the tags in milliseconds, adaptive polling is disabled if it is not positive
+     * @param maxInterval of the tags in milliseconds, adaptive polling is disabled if it is not above minInterval
+     * @param store       keeping the poll interval of each tag
+     */
+    public PollRateAdapter(int minInterval, int maxInterval, TagStateStore store) {
+        this.store = store;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        int level = 0;
+        if (isEnabled()) {
+            while ((this.minInterval << level) < this.maxInterval) {
+                level++;
+            }
+        }
+        this.maxLevel = level;
+    }
+
+    /**
+     * Check if adaptive polling is configured
+     *
+     * @return true if the minimum interval is positive and below the maximum interval
+     */
+    public boolean isEnabled() {
+        return minInterval > 0 && maxInterval > minInterval;
+    }
+
+    /**
+     * Get the current poll interval of a tag
+     *
+     * @param slot of the tag
+     * @return poll interval in milliseconds
+     */
+    public long getInterval(int slot) {
+        synchronized (store) {
+            return getIntervalOfLevel(store.getPollLevel(slot));
+        }
+    }
+
+    /**
+     * Get all poll intervals a tag may be polled with
+     *
+     * @return poll intervals in milliseconds from the minimum to the maximum interval
+     */
+    public List<Long> getIntervals() {
+        List<Long> intervals = new ArrayList<>();
+        for (int level = 0; level <= maxLevel; level++) {
+            intervals.add(getIntervalOfLevel(level));
+        }
+        return intervals;
+    }
+
+    /**
+     * Record a read of a tag and adapt its poll interval
+     *
+     * @param slot    of the tag
+     * @param changed true if the value read differs from the last published value
+     * @return true if the poll interval of the tag changed
+     */
+    public boolean recordRead(int slot, boolean changed) {
+        synchronized (store) {
+            int level = store.getPollLevel(slot);
+            if (changed) {
+                store.setStableReads(slot, 0);
+                if (level == 0) {
+                    return false;
+                }
+                store.setPollLevel(slot, level - 1);
+                return true;
+            }
+            int reads = store.getStableReads(slot) + 1;
+            if (reads < STABLE_READS || level >= maxLevel) {
+                store.setStableReads(slot, reads);
+                return false;
+            }
+            store.setStableReads(slot, 0);
+            store.setPollLevel(slot, level + 1);
+            return true;
+        }
+    }
+
+    /**
+     * Poll a tag at the minimum interval again
+     *
+     * @param slot of the tag
+     * @return true if the poll interval of the tag changed
+     */
+    public boolean reset(int slot) {
+        synchronized (store) {
+            store.setStableReads(slot, 0);
+            if (store.getPollLevel(slot) == 0) {
+                return false;
+            }
+            store.setPollLevel(slot, 0);
+            return true;
+        }
+    }
+
+    private long getIntervalOfLevel(int level) {
+        return Math.min(minInterval << level, maxInterval);
+    }
+}
@@ -0,0 +1,192 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the deadlines of the poll groups of one equipment. The poll wheel is advanced by the ticks elapsed since the
+ * last poll, so a poll taking longer than a tick does not pile up late ticks, they are merged into one poll instead.
+ * Every poll group due has to be read before it is due again, a poll finishing later is counted as overrun of the
+ * groups whose deadline passed. If polls overrun or start late repeatedly, the shed level rises by one and tags with a
+ * priority below it are deferred, so tags with a higher priority keep their rate. It falls again after a number of
+ * polls in time. Tags with the highest priority are never deferred.
+ *
+ * @created 17/10/2026 - 20:50
+ * @project DAQConfigLoader
+ */
+
+public class PollScheduler {
+
+    /**
+     * Number of polls in time after which the shed level is lowered by one
+     */
+    static final int RECOVERY_POLLS = 3;
+
+    private final PollWheel<Long> wheel;
+    private final int maxShedLevel;
+    private long origin;
+    private long ticks = 0;
+    /**
+     * Deadline of each poll group of the current poll in milliseconds
+     */
+    private final Map<Long, Long> deadlines = new HashMap<>();
+    private boolean late = false;
+    private int shedLevel = 0;
+    private int pollsInTime = 0;
+    private final LatencyStats lateness = new LatencyStats();
+    private final TreeMap<Long, Long> overruns = new TreeMap<>();
+    private long mergedTicks = 0;
+    private long shedReads = 0;
+
+    /**
+     * @param tickMillis  duration of one tick of the poll wheel in milliseconds
+     * @param maxPriority highest priority of the polled tags, tags with it are never deferred
+     */
+    public PollScheduler(long tickMillis, int maxPriority) {
+        this.wheel = new PollWheel<>(tickMillis);
+        this.maxShedLevel = Math.max(0, maxPriority);
+        this.origin = System.currentTimeMillis();
+    }
+
+    public long getTickMillis() {
+        return wheel.getTickMillis();
+    }
+
+    /**
+     * Poll a group periodically, it is due for the first time one interval after the first tick
+     *
+     * @param interval of the poll group in milliseconds
+     */
+    public void schedule(long interval) {
+        wheel.schedule(interval, interval);
+    }
+
+    /**
+     * Start counting the ticks, the first tick is due one tick after now
+     *
+     * @param now current time in milliseconds
+     */
+    public synchronized void start(long now) {
+        origin = now;
+        ticks = 0;
+    }
+
+    /**
+     * Advance the poll wheel by all ticks elapsed since the last poll and remember the deadlines of the groups due
+     *
+     * @param now current time in milliseconds
+     * @return poll intervals of the groups due, empty if no tick elapsed or nothing is due
+     */
+    public synchronized List<Long> advance(long now) {
+        long tickMillis = wheel.getTickMillis();
+        long elapsed = (now - origin) / tickMillis;
+        deadlines.clear();
+        if (elapsed <= ticks) {
+            return new ArrayList<>();
+        }
+        long firstTick = origin + (ticks + 1) * tickMillis;
+        lateness.record(TimeUnit.MILLISECONDS.toNanos(now - firstTick));
+        late = elapsed - ticks > 1;
+        mergedTicks += elapsed - ticks - 1;
+        Set<Long> due = new LinkedHashSet<>();
+        while (ticks < elapsed) {
+            ticks++;
+            long tickTime = origin + ticks * tickMillis;
+            for (Long interval : wheel.advance()) {
+                due.add(interval);
+                deadlines.putIfAbsent(interval, tickTime + interval);
+            }
+        }
+        return new ArrayList<>(due);
+    }
+
+    /**
+     * Finish the poll of the due groups, count the groups whose deadline passed and adjust the shed level
+     *
+     * @param now current time in milliseconds
+     */
+    public synchronized void finish(long now) {
+        boolean overrun = false;
+        for (Map.Entry<Long, Long> deadline : deadlines.entrySet()) {
+            if (now > deadline.getValue()) {
+                overruns.merge(deadline.getKey(), 1L, Long::sum);
+                overrun = true;
+            }
+        }
+        deadlines.clear();
+        if (overrun || late) {
+            pollsInTime = 0;
+            shedLevel = Math.min(shedLevel + 1, maxShedLevel);
+        } else if (shedLevel > 0 && ++pollsInTime >= RECOVERY_POLLS) {
+            pollsInTime = 0;
+            shedLevel--;
+        }
+    }
+
+    /**
+     * Get the priority tags need to be read in the current poll
+     *
+     * @return shed level, tags with a lower priority may be deferred, 0 if no tag is deferred
+     */
+    public synchronized int getShedLevel() {
+        return shedLevel;
+    }
+
+    /**
+     * Count tag reads deferred because of overload
+     *
+     * @param count of deferred tag reads
+     */
+    public synchronized void shed(int count) {
+        shedReads += count;
+    }
+
+    /**
+     * Get how late the polls started after their tick since the last reset
+     *
+     * @return lateness of the polls
+     */
+    public LatencyStats getLateness() {
+        return lateness;
+    }
+
+    /**
+     * Get the number of overruns of each poll group since the last reset
+     *
+     * @return overruns by poll interval in milliseconds
+     */
+    public synchronized Map<Long, Long> getOverruns() {
+        return new TreeMap<>(overruns);
+    }
+
+    /**
+     * Get the number of ticks merged into a later poll since the last reset
+     *
+     * @return merged ticks
+     */
+    public synchronized long getMergedTicks() {
+        return mergedTicks;
+    }
+
+    /**
+     * Get the number of tag reads deferred because of overload since the last reset
+     *
+     * @return deferred tag reads
+     */
+    public synchronized long getShedReads() {
+        return shedReads;
+    }
+
+    public synchronized void resetMetrics() {
+        lateness.reset();
+        overruns.clear();
+        mergedTicks = 0;
+        shedReads = 0;
+    }
+}
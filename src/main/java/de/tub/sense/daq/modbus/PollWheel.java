@@ -0,0 +1,93 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel for periodic polling. Every item is due again after its interval, rounded to whole ticks. The
+ * wheel is advanced once per tick and only looks at the slot of the current tick, so the cost of a tick does not
+ * depend on the number of items which are not due. Items with intervals longer than one turn of the wheel wait for
+ * the remaining rounds in their slot.
+ *
+ * @created 17/10/2026 - 19:40
+ * @project DAQConfigLoader
+ */
+
+public class PollWheel<T> {
+
+    /**
+     * Number of slots of the wheel
+     */
+    static final int WHEEL_SIZE = 64;
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> slots = new ArrayList<>(WHEEL_SIZE);
+    private int current = 0;
+
+    /**
+     * @param tickMillis duration of one tick in milliseconds
+     */
+    public PollWheel(long tickMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Poll an item periodically, it is due for the first time one interval after now
+     *
+     * @param item           to poll
+     * @param intervalMillis of the item, rounded to whole ticks
+     */
+    public synchronized void schedule(T item, long intervalMillis) {
+        long ticks = Math.max(1, Math.round((double) intervalMillis / tickMillis));
+        insert(new Entry<>(item, ticks));
+    }
+
+    /**
+     * Advance the wheel by one tick and reschedule the items which are due
+     *
+     * @return items due in this tick
+     */
+    public synchronized List<T> advance() {
+        current = (current + 1) % WHEEL_SIZE;
+        List<T> due = new ArrayList<>();
+        List<Entry<T>> rescheduled = new ArrayList<>();
+        Iterator<Entry<T>> entries = slots.get(current).iterator();
+        while (entries.hasNext()) {
+            Entry<T> entry = entries.next();
+            if (entry.rounds > 0) {
+                entry.rounds--;
+                continue;
+            }
+            entries.remove();
+            due.add(entry.item);
+            rescheduled.add(entry);
+        }
+        rescheduled.forEach(this::insert);
+        return due;
+    }
+
+    private void insert(Entry<T> entry) {
+        entry.rounds = (entry.ticks - 1) / WHEEL_SIZE;
+        slots.get((int) ((current + entry.ticks) % WHEEL_SIZE)).add(entry);
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final long ticks;
+        private long rounds;
+
+        private Entry(T item, long ticks) {
+            this.item = item;
+            this.ticks = ticks;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the requests of one equipment over several connections to the same device. Each request goes to the
+ * connection with the fewest requests in flight. Blocking transports get one lane thread per connection, so their
+ * requests run in parallel. A connection which breaks is replaced by a new one and the request is retried once on
+ * another connection. Requests the device did not answer in time are not retried here, the connection is still up
+ * and the scheduler retries them with its own timeout.
+ *
+ * @created 17/10/2026 - 13:05
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class PooledModbusSocket extends ModbusFunctionFactory {
+
+    private final SocketFactory socketFactory;
+    private final Slot[] slots;
+    private final String name;
+    private volatile int timeout = 0;
+
+    public PooledModbusSocket(String name, int maxConnections, SocketFactory socketFactory) {
+        this.name = name;
+        this.socketFactory = socketFactory;
+        this.slots = new Slot[Math.max(1, maxConnections)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(i);
+        }
+    }
+
+    /**
+     * Connect all pooled connections
+     *
+     * @return true if at least one connection is established
+     */
+    @Override
+    public boolean connect() {
+        boolean connected = false;
+        for (Slot slot : slots) {
+            try {
+                connected |= slot.socket().connect();
+            } catch (Exception e) {
+                log.warn("Could not connect pooled connection {} of {}: {}", slot.index, name, e.getMessage());
+            }
+        }
+        return connected;
+    }
+
+    @Override
+    public void disconnect() {
+        for (Slot slot : slots) {
+            slot.close();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        for (Slot slot : slots) {
+            ModbusFunctionFactory socket = slot.socket;
+            if (socket != null && socket.isConnected()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+        for (Slot slot : slots) {
+            ModbusFunctionFactory socket = slot.socket;
+            if (socket != null) {
+                socket.setTimeout(timeout);
+            }
+        }
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    @Override
+    protected ModbusResponse execute(ModbusRequest request) throws Exception {
+        return await(submit(request));
+    }
+
+    /**
+     * Send a request over the least loaded connection
+     *
+     * @param request you want to execute
+     * @return future completed with the response of the request
+     */
+    @Override
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        return submit(leastLoaded(null), request, true);
+    }
+
+    private CompletableFuture<ModbusResponse> submit(Slot slot, ModbusRequest request, boolean retry) {
+        CompletableFuture<ModbusResponse> result = new CompletableFuture<>();
+        ModbusFunctionFactory socket;
+        try {
+            socket = slot.socket();
+        } catch (Exception e) {
+            result.completeExceptionally(new ModbusIOException("Could not create pooled connection: " + e.getMessage()));
+            return result;
+        }
+        slot.load.incrementAndGet();
+        slot.dispatch(socket, request).whenComplete((response, throwable) -> {
+            slot.load.decrementAndGet();
+            if (throwable == null) {
+                result.complete(response);
+                return;
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (isConnectionFailure(socket, cause)) {
+                log.warn("Pooled connection {} of {} failed, replacing it: {}", slot.index, name, cause.getMessage());
+                slot.replace(socket);
+                if (retry) {
+                    CompletableFuture.supplyAsync(() -> submit(leastLoaded(slot), request, false))
+                            .thenCompose(retried -> retried)
+                            .whenComplete((retriedResponse, retriedThrowable) -> {
+                                if (retriedThrowable == null) {
+                                    result.complete(retriedResponse);
+                                } else {
+                                    result.completeExceptionally(retriedThrowable instanceof CompletionException ? retriedThrowable.getCause() : retriedThrowable);
+                                }
+                            });
+                    return;
+                }
+            }
+            result.completeExceptionally(cause);
+        });
+        return result;
+    }
+
+    /**
+     * Get the connection with the fewest requests in flight, preferring connections other than the excluded one
+     *
+     * @param excluded slot to avoid, may be null
+     * @return the least loaded slot
+     */
+    private Slot leastLoaded(Slot excluded) {
+        Slot best = null;
+        for (Slot slot : slots) {
+            if (slot == excluded && slots.length > 1) {
+                continue;
+            }
+            if (best == null || slot.load.get() < best.load.get()) {
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Check if a request failed because its connection broke. A response timeout leaves the connection up, only the
+     * transports close it when reading or writing fails.
+     *
+     * @param socket the request was sent over
+     * @param cause  of the failure
+     * @return true if the connection has to be replaced
+     */
+    private static boolean isConnectionFailure(ModbusFunctionFactory socket, Throwable cause) {
+        if (cause instanceof ModbusIOException) {
+            return ((ModbusIOException) cause).isEOF() || !socket.isConnected();
+        }
+        return cause instanceof IOException;
+    }
+
+    /**
+     * Creates a new connection to the device of the pool
+     */
+    @FunctionalInterface
+    public interface SocketFactory {
+        ModbusFunctionFactory create() throws Exception;
+    }
+
+    private class Slot {
+
+        private final int index;
+        private final AtomicInteger load = new AtomicInteger();
+        private volatile ModbusFunctionFactory socket;
+        private ExecutorService lane;
+
+        private Slot(int index) {
+            this.index = index;
+        }
+
+        private synchronized ModbusFunctionFactory socket() throws Exception {
+            if (socket == null) {
+                socket = socketFactory.create();
+                if (timeout > 0) {
+                    socket.setTimeout(timeout);
+                }
+            }
+            return socket;
+        }
+
+        /**
+         * Run a request on the connection of this slot. Blocking transports are run on the lane thread of the slot.
+         */
+        private CompletableFuture<ModbusResponse> dispatch(ModbusFunctionFactory target, ModbusRequest request) {
+            if (target.isAsynchronous()) {
+                return target.submit(request);
+            }
+            CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+            lane().execute(() -> target.submit(request).whenComplete((response, throwable) -> {
+                if (throwable == null) {
+                    future.complete(response);
+                } else {
+                    future.completeExceptionally(throwable);
+                }
+            }));
+            return future;
+        }
+
+        private synchronized ExecutorService lane() {
+            if (lane == null) {
+                lane = Executors.newSingleThreadExecutor(
+                        new ThreadFactoryBuilder().setNameFormat(name + "-connection-" + index).setDaemon(true).build());
+            }
+            return lane;
+        }
+
+        /**
+         * Drop a failed connection, the next request of this slot opens a new one
+         */
+        private synchronized void replace(ModbusFunctionFactory failed) {
+            if (socket == failed) {
+                failed.disconnect();
+                socket = null;
+            }
+        }
+
+        private synchronized void close() {
+            if (socket != null) {
+                socket.disconnect();
+                socket = null;
+            }
+        }
+    }
+}
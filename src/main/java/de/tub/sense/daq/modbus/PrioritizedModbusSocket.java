@@ -0,0 +1,315 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.*;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the requests of commands and of the polling in front of a transport. Only one request is handed to the
+ * transport at a time and waiting commands always go first, so a command never waits for more than the request in
+ * progress. Polling yields between its requests. The time commands wait for the transport is measured.
+ * <p>
+ * The round trip times of the answered requests drive the timeout of the transport and the number of retries, see
+ * {@link RttEstimator}. After a request got no answer despite its retries, poll requests fail immediately for the
+ * configured timeout, so the remaining reads of a refresh cycle do not wait for a stalled device one by one. Reads
+ * answered while no other request was in flight also feed the cost model of the {@link DeviceProfile}.
+ *
+ * @created 17/10/2026 - 16:10
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class PrioritizedModbusSocket {
+
+    public enum Priority {
+        COMMAND,
+        POLL
+    }
+
+    private final ModbusFunctionFactory transport;
+    private final Lane commandLane = new Lane(Priority.COMMAND);
+    private final Lane pollLane = new Lane(Priority.POLL);
+    @Getter
+    private final LatencyStats commandLatency = new LatencyStats();
+    @Getter
+    private final RttEstimator rttEstimator;
+    private final DeviceProfile deviceProfile;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private int waitingCommands = 0;
+    private boolean dispatching = false;
+    private volatile int appliedTimeout;
+    private volatile long failFastUntil = 0;
+    private volatile boolean failingFast = false;
+    private volatile long lastAnswer = System.nanoTime();
+
+    /**
+     * @param transport     to send the requests with
+     * @param timeout       configured timeout in milliseconds, the upper bound of the adapted timeout
+     * @param maxRetries    upper bound of the retries of a request without answer
+     * @param deviceProfile to record the round trip times of reads in
+     */
+    public PrioritizedModbusSocket(ModbusFunctionFactory transport, int timeout, int maxRetries, DeviceProfile deviceProfile) {
+        this.transport = transport;
+        this.rttEstimator = new RttEstimator(timeout, maxRetries);
+        this.deviceProfile = deviceProfile;
+        this.appliedTimeout = timeout;
+        transport.setTimeout(timeout);
+    }
+
+    /**
+     * Get the view of the transport which schedules its requests with the given priority
+     *
+     * @param priority of the requests
+     * @return transport view for the priority
+     */
+    public ModbusFunctionFactory lane(Priority priority) {
+        return priority == Priority.COMMAND ? commandLane : pollLane;
+    }
+
+    /**
+     * Send a request with the retries the measured round trip times allow. Poll requests fail immediately while the
+     * device is failing fast.
+     *
+     * @param request  to execute
+     * @param priority of the request
+     * @return future completed with the response of the request
+     */
+    private CompletableFuture<ModbusResponse> dispatch(ModbusRequest request, Priority priority) {
+        CompletableFuture<ModbusResponse> result = new CompletableFuture<>();
+        if (priority == Priority.POLL && failingFast && System.nanoTime() - failFastUntil < 0) {
+            result.completeExceptionally(new ModbusIOException("Device did not answer recently, failing fast"));
+            return result;
+        }
+        attempt(request, priority, rttEstimator.getRetries(), result);
+        return result;
+    }
+
+    /**
+     * Wait for the turn of a request and hand it to the transport. Blocking transports execute the request before
+     * the next one is dispatched, asynchronous transports only send it.
+     *
+     * @param request     to execute
+     * @param priority    of the request
+     * @param retriesLeft number of times the request is sent again if it gets no answer
+     * @param result      to complete with the response
+     */
+    private void attempt(ModbusRequest request, Priority priority, int retriesLeft, CompletableFuture<ModbusResponse> result) {
+        long queued = System.nanoTime();
+        try {
+            acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        long sent;
+        int timeout;
+        boolean alone;
+        CompletableFuture<ModbusResponse> response;
+        try {
+            sent = System.nanoTime();
+            timeout = appliedTimeout;
+            if (priority == Priority.COMMAND) {
+                commandLatency.record(sent - queued);
+            }
+            alone = inFlight.getAndIncrement() == 0;
+            response = transport.submit(request);
+        } finally {
+            release();
+        }
+        response.whenComplete((value, throwable) -> {
+            inFlight.decrementAndGet();
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (cause == null || cause instanceof ModbusSlaveException) {
+                long nanos = System.nanoTime() - sent;
+                answered(nanos);
+                if (cause == null && alone) {
+                    recordRead(request, nanos);
+                }
+                if (cause == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(cause);
+                }
+            } else if (isNoAnswer(cause) && retriesLeft > 0) {
+                timedOut(timeout);
+                log.debug("Request got no answer, {} retries left: {}", retriesLeft, cause.getMessage());
+                if (transport.isAsynchronous()) {
+                    // not on the thread of the transport, which completes the responses of other requests
+                    CompletableFuture.runAsync(() -> attempt(request, priority, retriesLeft - 1, result));
+                } else {
+                    attempt(request, priority, retriesLeft - 1, result);
+                }
+            } else {
+                if (isNoAnswer(cause)) {
+                    timedOut(timeout);
+                    noAnswer();
+                }
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+
+    /**
+     * Record the round trip time of an answered request and apply the adapted timeout to the transport
+     *
+     * @param nanos round trip time in nanoseconds
+     */
+    private void answered(long nanos) {
+        lastAnswer = System.nanoTime();
+        failingFast = false;
+        rttEstimator.record(nanos);
+        applyTimeout();
+    }
+
+    /**
+     * Back off the timeout after a request got no answer and apply it to the transport
+     *
+     * @param timeout in milliseconds the request was sent with
+     */
+    private void timedOut(int timeout) {
+        rttEstimator.backoff(timeout);
+        applyTimeout();
+    }
+
+    /**
+     * Apply the timeout of the round trip time estimator to the transport if it changed
+     */
+    private void applyTimeout() {
+        int timeout = rttEstimator.getTimeout();
+        if (timeout != appliedTimeout) {
+            appliedTimeout = timeout;
+            transport.setTimeout(timeout);
+            if (log.isDebugEnabled()) {
+                log.debug("Adapted timeout to {}ms with {} retries", timeout, rttEstimator.getRetries());
+            }
+        }
+    }
+
+    /**
+     * Record the round trip time of a read request in the device profile. Requests which were in flight together
+     * with others are not recorded, their round trip time includes waiting for the other responses.
+     *
+     * @param request which was answered
+     * @param nanos   round trip time in nanoseconds
+     */
+    private void recordRead(ModbusRequest request, long nanos) {
+        if (request instanceof ReadMultipleRegistersRequest) {
+            deviceProfile.recordRead(RegisterType.HOLDING, ((ReadMultipleRegistersRequest) request).getWordCount(), nanos);
+        } else if (request instanceof ReadInputRegistersRequest) {
+            deviceProfile.recordRead(RegisterType.INPUT, ((ReadInputRegistersRequest) request).getWordCount(), nanos);
+        } else if (request instanceof ReadCoilsRequest) {
+            deviceProfile.recordRead(RegisterType.COIL, ((ReadCoilsRequest) request).getBitCount(), nanos);
+        } else if (request instanceof ReadInputDiscretesRequest) {
+            deviceProfile.recordRead(RegisterType.DISCRETE, ((ReadInputDiscretesRequest) request).getBitCount(), nanos);
+        }
+    }
+
+    /**
+     * Let poll requests fail fast for the configured timeout after a request got no answer
+     */
+    private void noAnswer() {
+        failFastUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(rttEstimator.getMaxTimeout());
+        failingFast = true;
+    }
+
+    /**
+     * Check if the device stopped answering
+     *
+     * @return true if a request got no answer despite its retries and no request was answered since
+     */
+    public boolean isFailingFast() {
+        return failingFast;
+    }
+
+    /**
+     * Get the time the device answered a request last
+     *
+     * @return {@link System#nanoTime()} of the last answer, the time of creation before the first one
+     */
+    public long getLastAnswer() {
+        return lastAnswer;
+    }
+
+    private static boolean isNoAnswer(Throwable cause) {
+        return cause instanceof ModbusIOException || cause instanceof IOException;
+    }
+
+    private synchronized void acquire(Priority priority) throws InterruptedException {
+        if (priority == Priority.COMMAND) {
+            waitingCommands++;
+            try {
+                while (dispatching) {
+                    wait();
+                }
+            } finally {
+                waitingCommands--;
+            }
+        } else {
+            while (dispatching || waitingCommands > 0) {
+                wait();
+            }
+        }
+        dispatching = true;
+    }
+
+    private synchronized void release() {
+        dispatching = false;
+        notifyAll();
+    }
+
+    /**
+     * Transport view of one priority, connection handling is passed through to the transport
+     */
+    private class Lane extends ModbusFunctionFactory {
+
+        private final Priority priority;
+
+        private Lane(Priority priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        protected ModbusResponse execute(ModbusRequest request) throws Exception {
+            return await(submit(request));
+        }
+
+        @Override
+        public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+            return dispatch(request, priority);
+        }
+
+        @Override
+        public boolean isAsynchronous() {
+            return transport.isAsynchronous();
+        }
+
+        @Override
+        public boolean connect() throws Exception {
+            return transport.connect();
+        }
+
+        @Override
+        public void disconnect() {
+            transport.disconnect();
+        }
+
+        @Override
+        public void abort() {
+            transport.abort();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return transport.isConnected();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package de.tub.sense.daq.modbus;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A range of registers or bits which is read with a single modbus request. Each member tag is sliced out of the
+ * response by its offset to the start address of the block. Several boolean tags may share one holding register,
+ * they are demultiplexed by their bit number when decoding. The raw words of every read are written into a buffer
+ * owned by the block, so refreshing a block does not allocate.
+ *
+ * @created 17/10/2026 - 09:20
+ * @project DAQConfigLoader
+ */
+
+@Getter
+@ToString
+public class ReadBlock {
+
+    private final RegisterType registerType;
+    private final int startAddress;
+    private int count;
+    private final List<Member> members = new ArrayList<>();
+    @ToString.Exclude
+    private int[] words;
+
+    public ReadBlock(RegisterType registerType, int startAddress, int count) {
+        this.registerType = registerType;
+        this.startAddress = startAddress;
+        this.count = count;
+    }
+
+    /**
+     * Create the block covering the given tags
+     *
+     * @param members of the block, ordered by start address
+     * @return block starting at the address of the first member
+     */
+    public static ReadBlock of(List<Member> members) {
+        Member first = members.get(0);
+        ReadBlock block = new ReadBlock(first.getCodec().getRegisterType(), first.getCodec().getStartAddress(), 0);
+        members.forEach(block::add);
+        return block;
+    }
+
+    /**
+     * Split the block into two blocks with half of the members each, to isolate members whose registers the device
+     * rejects
+     *
+     * @return two blocks covering the first and the second half of the members
+     */
+    public List<ReadBlock> split() {
+        int half = members.size() / 2;
+        return Arrays.asList(of(members.subList(0, half)), of(members.subList(half, members.size())));
+    }
+
+    /**
+     * Get the first address after the block
+     *
+     * @return exclusive end address
+     */
+    public int getEndAddress() {
+        return startAddress + count;
+    }
+
+    /**
+     * Get the offset of a member inside the block
+     *
+     * @param member of this block
+     * @return offset in registers
+     */
+    public int offsetOf(Member member) {
+        return member.getCodec().getStartAddress() - startAddress;
+    }
+
+    /**
+     * Get the buffer the raw register or bit values of the block are read into. It is reused by every read.
+     *
+     * @return buffer with one word per register or bit of the block
+     */
+    public int[] getWords() {
+        if (words == null || words.length != count) {
+            words = new int[count];
+        }
+        return words;
+    }
+
+    /**
+     * Decode the value of a member from the raw words of the block without boxing it
+     *
+     * @param member of this block
+     * @param words  raw register or bit values read for the block
+     * @return bits of the value, see {@link TagCodec#decode(int[], int, int)}
+     */
+    public long decode(Member member, int[] words) {
+        return member.getCodec().decode(words, offsetOf(member), member.getLength());
+    }
+
+    /**
+     * Add a tag to the block and extend the block to cover it
+     *
+     * @param member to add
+     */
+    public void add(Member member) {
+        members.add(member);
+        count = Math.max(count, member.getCodec().getStartAddress() + member.getLength() - startAddress);
+    }
+
+    /**
+     * A tag read with a block. Its state is kept in the {@link TagStateStore} under its slot, so every block reading
+     * the tag sees the same last published value.
+     */
+    @Getter
+    @ToString
+    public static class Member {
+
+        private final long tagId;
+        private final int slot;
+        private final TagCodec codec;
+
+        public Member(long tagId, int slot, TagCodec codec) {
+            this.tagId = tagId;
+            this.slot = slot;
+            this.codec = codec;
+        }
+
+        /**
+         * Get the number of registers the tag occupies
+         *
+         * @return length in registers
+         */
+        public int getLength() {
+            return codec.getWordCount();
+        }
+    }
+}
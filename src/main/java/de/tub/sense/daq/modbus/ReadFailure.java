@@ -0,0 +1,98 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Why a read request failed. Only rejected requests are a property of the registers read, all other failures are
+ * expected to go away without changing the request.
+ *
+ * @created 17/10/2026 - 18:05
+ * @project DAQConfigLoader
+ */
+
+public enum ReadFailure {
+
+    /**
+     * The device answered with illegal data address, at least one of the registers read does not exist
+     */
+    ILLEGAL_ADDRESS,
+
+    /**
+     * The device answered with illegal function, it does not support reading the register space
+     */
+    ILLEGAL_FUNCTION,
+
+    /**
+     * The device answered with illegal data value, usually because too many registers were requested
+     */
+    ILLEGAL_VALUE,
+
+    /**
+     * The device answered with busy, device failure or another exception which may pass
+     */
+    BUSY,
+
+    /**
+     * The device did not answer or the connection failed
+     */
+    NO_ANSWER;
+
+    /**
+     * Classify the failure of a request
+     *
+     * @param cause of the failure
+     * @return class of the failure
+     */
+    public static ReadFailure of(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (!(cause instanceof ModbusSlaveException)) {
+            return NO_ANSWER;
+        }
+        switch (((ModbusSlaveException) cause).getType()) {
+            case Modbus.ILLEGAL_ADDRESS_EXCEPTION:
+                return ILLEGAL_ADDRESS;
+            case Modbus.ILLEGAL_FUNCTION_EXCEPTION:
+                return ILLEGAL_FUNCTION;
+            case Modbus.ILLEGAL_VALUE_EXCEPTION:
+                return ILLEGAL_VALUE;
+            default:
+                return BUSY;
+        }
+    }
+
+    /**
+     * Check if the device rejected the request itself, so it fails again unless the registers read are changed
+     *
+     * @return true for illegal address, illegal function and illegal value
+     */
+    public boolean isRejected() {
+        return this == ILLEGAL_ADDRESS || this == ILLEGAL_FUNCTION || this == ILLEGAL_VALUE;
+    }
+
+    /**
+     * Classify the failure of a request which completed exceptionally
+     *
+     * @param future of the request
+     * @return class of the failure, no answer if the future did not fail
+     */
+    public static ReadFailure of(CompletableFuture<?> future) {
+        return of(causeOf(future));
+    }
+
+    /**
+     * Get the cause of a request which completed exceptionally
+     *
+     * @param future of the request
+     * @return cause of the failure or null if the future did not fail
+     */
+    public static Throwable causeOf(CompletableFuture<?> future) {
+        Throwable cause = future.handle((value, throwable) -> throwable).getNow(null);
+        return cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+    }
+}
@@ -0,0 +1,84 @@
+package de.tub.sense.daq.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * Groups the hardware addresses of an equipment into the cheapest set of modbus read requests. Tags in the same
+ * register space are merged into one block if they are contiguous or only separated by a gap which costs less to read
+ * than a separate request, as long as the block does not exceed the maximum number of registers per request and the
+ * gap contains no registers the device rejects. Limits and costs are taken from the {@link DeviceProfile} of the
+ * device.
+ *
+ * @created 17/10/2026 - 09:31
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class ReadPlanner {
+
+    /**
+     * Default number of unused registers which may be read to merge two tags into one request
+     */
+    public static final int DEFAULT_MAX_GAP = 8;
+
+    private final DeviceProfile deviceProfile;
+
+    public ReadPlanner() {
+        this(DEFAULT_MAX_GAP);
+    }
+
+    public ReadPlanner(int maxGap) {
+        this(new DeviceProfile(maxGap));
+    }
+
+    /**
+     * @param deviceProfile with the limits and costs of the read requests of the device
+     */
+    public ReadPlanner(DeviceProfile deviceProfile) {
+        this.deviceProfile = deviceProfile;
+    }
+
+    /**
+     * Create the read blocks for the given tags
+     *
+     * @param members of the tags
+     * @return list of read blocks ordered by register type and start address
+     */
+    public List<ReadBlock> planMembers(Collection<ReadBlock.Member> members) {
+        EnumMap<RegisterType, List<ReadBlock.Member>> membersByType = new EnumMap<>(RegisterType.class);
+        for (ReadBlock.Member member : members) {
+            membersByType.computeIfAbsent(member.getCodec().getRegisterType(), k -> new ArrayList<>()).add(member);
+        }
+        List<ReadBlock> blocks = new ArrayList<>();
+        for (Map.Entry<RegisterType, List<ReadBlock.Member>> entry : membersByType.entrySet()) {
+            blocks.addAll(planRegisterType(entry.getKey(), entry.getValue()));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Planned {} read blocks for {} tags", blocks.size(), members.size());
+        }
+        return blocks;
+    }
+
+    private List<ReadBlock> planRegisterType(RegisterType registerType, List<ReadBlock.Member> members) {
+        members.sort(Comparator.comparingInt((ReadBlock.Member m) -> m.getCodec().getStartAddress())
+                .thenComparingInt(ReadBlock.Member::getLength));
+        int maxGap = deviceProfile.getMaxGap(registerType);
+        int maxPerRequest = deviceProfile.getMaxPerRequest(registerType);
+        List<ReadBlock> blocks = new ArrayList<>();
+        ReadBlock current = null;
+        for (ReadBlock.Member member : members) {
+            int start = member.getCodec().getStartAddress();
+            int end = start + member.getLength();
+            if (current == null || start - current.getEndAddress() > maxGap
+                    || Math.max(end, current.getEndAddress()) - current.getStartAddress() > maxPerRequest
+                    || !deviceProfile.isSafeGap(registerType, current.getEndAddress(), start)) {
+                current = new ReadBlock(registerType, start, 0);
+                blocks.add(current);
+            }
+            current.add(member);
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,60 @@
+package de.tub.sense.daq.modbus;
+
+import lombok.Getter;
+
+import java.util.Optional;
+
+/**
+ * @created 17/10/2026 - 09:12
+ * @project DAQConfigLoader
+ */
+
+@Getter
+public enum RegisterType {
+
+    HOLDING(125, false),
+    INPUT(125, false),
+    COIL(2000, true),
+    DISCRETE(2000, true);
+
+    /**
+     * Maximum number of registers or bits the modbus specification allows in a single read request
+     */
+    private final int maxPerRequest;
+
+    /**
+     * True if the register space is addressed bitwise (coils and discrete inputs)
+     */
+    private final boolean bit;
+
+    RegisterType(int maxPerRequest, boolean bit) {
+        this.maxPerRequest = maxPerRequest;
+        this.bit = bit;
+    }
+
+    /**
+     * Get the register space for the register type of a hardware address
+     *
+     * @param type of the hardware address (e.g. holding32)
+     * @return register type or empty if the type can not be read in blocks
+     */
+    public static Optional<RegisterType> fromHardwareType(String type) {
+        if (type == null) {
+            return Optional.empty();
+        }
+        switch (type) {
+            case "holding":
+            case "holding32":
+            case "holding64":
+                return Optional.of(HOLDING);
+            case "input":
+                return Optional.of(INPUT);
+            case "coil":
+                return Optional.of(COIL);
+            case "discrete":
+                return Optional.of(DISCRETE);
+            default:
+                return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the round trip times of the requests to one device over a moving window and derives the request timeout and
+ * the number of retries from them. The timeout is a multiple of a high percentile of the measured round trip times,
+ * bounded by the configured timeout. The estimator starts at the configured timeout and lowers it only from a full
+ * window of round trip times, by at most half at a time, so a few fast answers do not shorten it to the minimum.
+ * Retries are only granted as far as all attempts together still fit into the
+ * configured timeout, so a stalled device never costs more than before. A request without an answer doubles the
+ * timeout up to the configured one and starts a new window, like the retransmission timeout of tcp, so a device
+ * which became slower is measured again instead of timing out against the old round trip times.
+ *
+ * @created 17/10/2026 - 16:40
+ * @project DAQConfigLoader
+ */
+
+public class RttEstimator {
+
+    /**
+     * Number of round trip times the percentile is calculated from
+     */
+    static final int WINDOW = 64;
+
+    /**
+     * Round trip times needed before the timeout is raised, it is only lowered from a full window
+     */
+    static final int MIN_SAMPLES = 8;
+
+    static final double PERCENTILE = 0.95;
+
+    /**
+     * Factor between the percentile of the round trip times and the timeout
+     */
+    static final int TIMEOUT_FACTOR = 4;
+
+    /**
+     * Lower bound of the adapted timeout in milliseconds
+     */
+    static final int MIN_TIMEOUT = 100;
+
+    private final long[] samples = new long[WINDOW];
+    private final long[] sorted = new long[WINDOW];
+    private final int maxTimeout;
+    private final int maxRetries;
+    private int next = 0;
+    private int size = 0;
+    private volatile int timeout;
+    private volatile int retries;
+
+    /**
+     * @param maxTimeout configured timeout in milliseconds, used until enough round trip times are measured
+     * @param maxRetries upper bound of the retries of a request
+     */
+    public RttEstimator(int maxTimeout, int maxRetries) {
+        this.maxTimeout = maxTimeout;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.timeout = maxTimeout;
+        this.retries = 0;
+    }
+
+    /**
+     * Add the round trip time of a request which was answered by the device
+     *
+     * @param nanos round trip time in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % WINDOW;
+        size = Math.min(size + 1, WINDOW);
+        if (size < MIN_SAMPLES) {
+            return;
+        }
+        System.arraycopy(samples, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        long percentile = sorted[Math.min(size - 1, (int) Math.ceil(size * PERCENTILE) - 1)];
+        long adapted = TimeUnit.NANOSECONDS.toMillis(percentile) * TIMEOUT_FACTOR;
+        int target = (int) Math.max(MIN_TIMEOUT, Math.min(maxTimeout, adapted));
+        if (target < timeout) {
+            if (size < WINDOW) {
+                return;
+            }
+            target = Math.max(target, timeout / 2);
+        }
+        timeout = target;
+        retries = Math.min(maxRetries, Math.max(0, maxTimeout / timeout - 1));
+    }
+
+    /**
+     * Back off after a request got no answer within the given timeout. The timeout is doubled, bounded by the
+     * configured timeout, and the round trip times measured so far are discarded. Requests which were sent with a
+     * shorter timeout than the current one do not back off again, so several requests timing out together double
+     * the timeout once.
+     *
+     * @param timedOut timeout in milliseconds the request was sent with
+     */
+    public synchronized void backoff(int timedOut) {
+        if (timedOut < timeout) {
+            return;
+        }
+        next = 0;
+        size = 0;
+        timeout = (int) Math.min(maxTimeout, 2L * timeout);
+        retries = Math.min(maxRetries, Math.max(0, maxTimeout / timeout - 1));
+    }
+
+    /**
+     * Get the timeout for the next request
+     *
+     * @return timeout in milliseconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Get the number of times a request which timed out is sent again
+     *
+     * @return number of retries
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * Get the configured timeout, which bounds the adapted timeout
+     *
+     * @return timeout in milliseconds
+     */
+    public int getMaxTimeout() {
+        return maxTimeout;
+    }
+}
@@ -0,0 +1,268 @@
+package de.tub.sense.daq.modbus;
+
+import de.tub.sense.daq.config.xml.HardwareAddress;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Everything needed to read or write a tag, resolved once from its hardware address and data type. Values are
+ * decoded from and encoded to raw register words directly, so the hot read and write paths do not compare strings.
+ * Array tags cover a number of consecutive values of the data type and are published as one primitive array.
+ *
+ * @created 17/10/2026 - 14:40
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+@Getter
+@ToString
+public class TagCodec {
+
+    private final HardwareAddress hardwareAddress;
+    private final RegisterType registerType;
+    private final ValueType valueType;
+    private final int startAddress;
+    private final int wordCount;
+    /**
+     * Number of values of an array tag, 0 for a single value
+     */
+    private final int arrayLength;
+    /**
+     * Number of registers or bits of a single value
+     */
+    private final int elementWordCount;
+    private final int bitNumber;
+    private final double multiplier;
+    private final double offset;
+    /**
+     * Minimum change of the value before it is published
+     */
+    private final Deadband deadband;
+    /**
+     * Interval the tag is polled with in milliseconds, 0 for the refresh interval of the equipment
+     */
+    private final int pollInterval;
+    /**
+     * Priority of the tag when polling falls behind, tags with a lower priority are deferred first
+     */
+    private final int priority;
+
+    private TagCodec(HardwareAddress hardwareAddress, RegisterType registerType, ValueType valueType) {
+        this.hardwareAddress = hardwareAddress;
+        this.registerType = registerType;
+        this.valueType = valueType;
+        this.startAddress = hardwareAddress.getStartAddress();
+        this.arrayLength = Math.max(0, hardwareAddress.getArrayLength());
+        this.elementWordCount = registerType.isBit() ? 1 : Math.max(1, hardwareAddress.getValueCount());
+        this.wordCount = arrayLength > 0 ? elementWordCount * arrayLength : Math.max(1, hardwareAddress.getValueCount());
+        this.bitNumber = registerType.isBit() ? 0 : hardwareAddress.getBitNumber();
+        this.multiplier = hardwareAddress.getMultiplier() == 0.0 ? 1 : hardwareAddress.getMultiplier();
+        this.offset = hardwareAddress.getOffset();
+        this.deadband = Deadband.of(hardwareAddress, valueType, multiplier, offset);
+        this.pollInterval = Math.max(0, hardwareAddress.getPollInterval());
+        this.priority = Math.max(0, hardwareAddress.getPriority());
+    }
+
+    /**
+     * Resolve the codec of a tag. Coils and discrete inputs are always booleans.
+     *
+     * @param hardwareAddress of the tag
+     * @param dataType        of the tag, e.g. s16 or java.lang.Short
+     * @return codec of the tag or empty if the register type or data type is not supported
+     */
+    public static Optional<TagCodec> of(HardwareAddress hardwareAddress, String dataType) {
+        String type = hardwareAddress.getType() == null ? null : hardwareAddress.getType().toLowerCase(Locale.ROOT);
+        Optional<RegisterType> registerType = RegisterType.fromHardwareType(type);
+        if (!registerType.isPresent()) {
+            log.warn("Modbus type {} not valid.", hardwareAddress.getType());
+            return Optional.empty();
+        }
+        Optional<ValueType> valueType = registerType.get().isBit() ? Optional.of(ValueType.BOOLEAN) : ValueType.fromDataType(dataType);
+        if (!valueType.isPresent()) {
+            log.warn("Datatype {} could not be converted", dataType);
+            return Optional.empty();
+        }
+        TagCodec codec = new TagCodec(hardwareAddress, registerType.get(), valueType.get());
+        if (codec.getWordCount() > codec.getRegisterType().getMaxPerRequest()) {
+            log.warn("Array of {} values does not fit into a single read request of at most {} {} registers",
+                    codec.getArrayLength(), codec.getRegisterType().getMaxPerRequest(), codec.getRegisterType());
+            return Optional.empty();
+        }
+        return Optional.of(codec);
+    }
+
+    /**
+     * Check if the tag covers several consecutive values, which are published as one array
+     *
+     * @return true for array tags
+     */
+    public boolean isArray() {
+        return arrayLength > 0;
+    }
+
+    /**
+     * Decode all values of an array tag from raw register words into a primitive array, e.g. a float[] for float
+     * values
+     *
+     * @param words  raw register or bit values
+     * @param offset of the first word of the tag
+     * @param scaled true to apply multiplier and offset of the tag to every value
+     * @return primitive array with the values of the tag
+     */
+    public Object decodeArray(int[] words, int offset, boolean scaled) {
+        Object array = valueType.newArray(arrayLength);
+        boolean scaling = scaled && (multiplier != 1 || this.offset != 0);
+        for (int i = 0; i < arrayLength; i++) {
+            long bits = valueType.decode(words, offset + i * elementWordCount, elementWordCount, bitNumber);
+            if (scaling) {
+                bits = valueType.toBits(valueType.scale(bits, multiplier, this.offset));
+            }
+            valueType.set(array, i, bits);
+        }
+        return array;
+    }
+
+    /**
+     * Decode the value of the tag from raw register words without boxing it
+     *
+     * @param words  raw register or bit values
+     * @param offset of the first word of the tag
+     * @param length number of words available for the tag
+     * @return bits of the value, see {@link ValueType#decode(int[], int, int, int)}
+     */
+    public long decode(int[] words, int offset, int length) {
+        return valueType.decode(words, offset, Math.min(length, wordCount), bitNumber);
+    }
+
+    /**
+     * Box the bits of a raw value
+     *
+     * @param bits of the value
+     * @return boxed raw value
+     */
+    public Object box(long bits) {
+        return valueType.box(bits);
+    }
+
+    /**
+     * Get the bits of a boxed raw value
+     *
+     * @param value boxed raw value
+     * @return bits of the value
+     */
+    public long toBits(Object value) {
+        return valueType.toBits(value);
+    }
+
+    /**
+     * Apply multiplier and offset of the tag and box the value
+     *
+     * @param bits of the raw value
+     * @return boxed scaled value
+     */
+    public Object scale(long bits) {
+        return valueType.scale(bits, multiplier, offset);
+    }
+
+    /**
+     * Check if a changed value differs enough from the previous one to be published, see {@link Deadband}
+     *
+     * @param bits     of the new raw value
+     * @param prevBits of the previous raw value
+     * @return true if the value has to be published
+     */
+    public boolean exceedsDeadband(long bits, long prevBits) {
+        return deadband.exceeds(valueType, bits, prevBits);
+    }
+
+    /**
+     * Check if the tag is a single bit inside a holding register, which is written by changing only that bit
+     *
+     * @return true for boolean tags in one holding register
+     */
+    public boolean isRegisterBit() {
+        return registerType == RegisterType.HOLDING && valueType == ValueType.BOOLEAN && wordCount == 1 && !isArray();
+    }
+
+    /**
+     * Set or clear the bit of the tag in a register value
+     *
+     * @param register value of the register
+     * @param value    of the bit
+     * @return new value of the register
+     */
+    public int applyBit(int register, boolean value) {
+        return value ? (register | (1 << bitNumber)) & 0xFFFF : register & ~(1 << bitNumber) & 0xFFFF;
+    }
+
+    /**
+     * Get the and mask of a mask write which changes only the bit of the tag
+     *
+     * @return mask keeping all other bits of the register
+     */
+    public int getAndMask() {
+        return ~(1 << bitNumber) & 0xFFFF;
+    }
+
+    /**
+     * Get the or mask of a mask write which sets the bit of the tag to the value
+     *
+     * @param value of the bit
+     * @return mask with only the bit of the tag set if the value is true
+     */
+    public int getOrMask(boolean value) {
+        return value ? 1 << bitNumber : 0;
+    }
+
+    /**
+     * Encode a value to the unsigned words written to the holding registers of the tag
+     *
+     * @param value to write
+     * @return register words or empty if the data type can not be written to the number of registers of the tag
+     */
+    public Optional<int[]> encode(Object value) {
+        if (registerType != RegisterType.HOLDING || isArray() || !(value instanceof Number)) {
+            return Optional.empty();
+        }
+        long bits;
+        Number number = (Number) value;
+        switch (wordCount) {
+            case 4:
+                if (valueType == ValueType.LONG) {
+                    bits = number.longValue();
+                } else if (valueType == ValueType.DOUBLE) {
+                    bits = Double.doubleToLongBits(number.doubleValue());
+                } else {
+                    return Optional.empty();
+                }
+                break;
+            case 2:
+                if (valueType == ValueType.INTEGER || valueType == ValueType.LONG) {
+                    bits = number.intValue();
+                } else if (valueType == ValueType.FLOAT) {
+                    bits = Float.floatToIntBits(number.floatValue());
+                } else {
+                    return Optional.empty();
+                }
+                break;
+            case 1:
+                if (valueType == ValueType.SHORT) {
+                    bits = number.shortValue();
+                } else {
+                    return Optional.empty();
+                }
+                break;
+            default:
+                return Optional.empty();
+        }
+        int[] words = new int[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = (int) (bits >>> (Short.SIZE * (wordCount - 1 - i))) & 0xFFFF;
+        }
+        return Optional.of(words);
+    }
+}
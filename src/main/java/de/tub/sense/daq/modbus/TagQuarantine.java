@@ -0,0 +1,126 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Circuit breaker for tags whose registers the device rejects. Quarantined tags are left out of the read blocks and
+ * read alone once their backoff expired. Every failed attempt doubles the backoff, a successful one releases the tag.
+ *
+ * @created 17/10/2026 - 18:10
+ * @project DAQConfigLoader
+ */
+
+public class TagQuarantine {
+
+    /**
+     * Backoff of a newly quarantined tag in milliseconds
+     */
+    static final long INITIAL_BACKOFF = 10_000;
+
+    /**
+     * Upper bound of the backoff in milliseconds
+     */
+    static final long MAX_BACKOFF = 3_600_000;
+
+    private final Map<Long, Entry> entries = new TreeMap<>();
+
+    /**
+     * Quarantine a tag whose registers were rejected, or double its backoff if it is quarantined already
+     *
+     * @param tagId  of the tag
+     * @param reason of the failure
+     * @param now    current time in milliseconds
+     * @return true if the tag was not quarantined before
+     */
+    public synchronized boolean quarantine(long tagId, String reason, long now) {
+        Entry entry = entries.get(tagId);
+        if (entry == null) {
+            entries.put(tagId, new Entry(reason, INITIAL_BACKOFF, now + INITIAL_BACKOFF));
+            return true;
+        }
+        entry.reason = reason;
+        entry.backoff = Math.min(MAX_BACKOFF, entry.backoff * 2);
+        entry.retryAt = now + entry.backoff;
+        return false;
+    }
+
+    /**
+     * Try a quarantined tag again after its current backoff, without doubling it. Used if the attempt failed for a
+     * reason which says nothing about the tag.
+     *
+     * @param tagId of the tag
+     * @param now   current time in milliseconds
+     */
+    public synchronized void postpone(long tagId, long now) {
+        Entry entry = entries.get(tagId);
+        if (entry != null) {
+            entry.retryAt = now + entry.backoff;
+        }
+    }
+
+    /**
+     * Release a tag which could be read again
+     *
+     * @param tagId of the tag
+     * @return true if the tag was quarantined
+     */
+    public synchronized boolean release(long tagId) {
+        return entries.remove(tagId) != null;
+    }
+
+    public synchronized boolean isQuarantined(long tagId) {
+        return entries.containsKey(tagId);
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the quarantined tags whose backoff expired
+     *
+     * @param now current time in milliseconds
+     * @return ids of the tags to try again
+     */
+    public synchronized List<Long> due(long now) {
+        List<Long> due = new ArrayList<>();
+        for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().retryAt <= now) {
+                due.add(entry.getKey());
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Describe the quarantined tags for the equipment state
+     *
+     * @return ids and failure reasons of the quarantined tags
+     */
+    public synchronized String describe() {
+        StringJoiner joiner = new StringJoiner(", ", entries.size() + " tag(s) quarantined: ", "");
+        entries.forEach((tagId, entry) -> joiner.add(tagId + " (" + entry.reason + ")"));
+        return joiner.toString();
+    }
+
+    private static class Entry {
+
+        private String reason;
+        private long backoff;
+        private long retryAt;
+
+        private Entry(String reason, long backoff, long retryAt) {
+            this.reason = reason;
+            this.backoff = backoff;
+            this.retryAt = retryAt;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.Arrays;
+
+/**
+ * State of the data tags of one equipment. Every tag id is mapped once to a dense slot, the state of the tags is kept
+ * in one primitive array per field indexed by the slot: the codec, the raw value last published, the raw words of
+ * the last published array, the raw words last read of a single value tag, the time it was published, the time it was
+ * read last and the adapted poll interval.
+ * Reading a tag in the poll loop neither boxes its id nor its value. The tag ids are mapped with an open addressing table of primitive longs.
+ * <p>
+ * Writers are serialized by the monitor of the store, which block refreshes hold for the whole block. Readers do not
+ * lock: a writer adds a slot by writing its tag id, its codec and the table first and the volatile size last, a
+ * reader looking up a slot reads the size first and ignores slots beyond it. So a reader finding a slot sees its tag
+ * id, its codec and the arrays holding them, as does a reader getting the slot from a member published through a
+ * volatile field. The last values are written by the writers only, readers may see them one publication late.
+ *
+ * @created 17/10/2026 - 22:10
+ * @project DAQConfigLoader
+ */
+
+public class TagStateStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Words of the largest single value, the raw words of longer tags are not kept
+     */
+    private static final int MAX_RAW_WORDS = 4;
+
+    /**
+     * Replaced as a whole when it grows, so readers never see the keys of one table with the buckets of another
+     */
+    private volatile Table table = new Table(INITIAL_CAPACITY * 2);
+    private long[] tagIds = new long[INITIAL_CAPACITY];
+    private TagCodec[] codecs = new TagCodec[INITIAL_CAPACITY];
+    private long[] lastBits = new long[INITIAL_CAPACITY];
+    private int[][] lastWords = new int[INITIAL_CAPACITY][];
+    /**
+     * Time the last value was published in milliseconds, 0 before the first one
+     */
+    private long[] publishedAt = new long[INITIAL_CAPACITY];
+    /**
+     * Number of the last publication of each tag, counted over all tags
+     */
+    private long[] publicationOf = new long[INITIAL_CAPACITY];
+    private long publications = 0;
+    /**
+     * Raw words of the last read of each single value tag which was decoded, packed into one long
+     */
+    private long[] rawWords = new long[INITIAL_CAPACITY];
+    /**
+     * Publication number of the tag when its raw words were kept, 0 if none are kept
+     */
+    private long[] rawPublication = new long[INITIAL_CAPACITY];
+    /**
+     * Time the tag was read successfully last in milliseconds, whether its value was published or not, 0 before the
+     * first read
+     */
+    private long[] readAt = new long[INITIAL_CAPACITY];
+    /**
+     * Number of times the poll interval is doubled, see {@link PollRateAdapter}
+     */
+    private int[] pollLevels = new int[INITIAL_CAPACITY];
+    /**
+     * Number of reads without change since the poll interval changed last
+     */
+    private int[] stableReads = new int[INITIAL_CAPACITY];
+    private volatile int size = 0;
+
+    /**
+     * Get the slot of a tag, or give it the next free slot
+     *
+     * @param tagId of the data tag
+     * @param codec of the data tag, replaces the codec of a tag which has a slot already
+     * @return slot of the tag
+     */
+    public synchronized int register(long tagId, TagCodec codec) {
+        int slot = find(tagId);
+        if (slot < 0) {
+            if (size == tagIds.length) {
+                grow();
+            }
+            slot = size;
+            tagIds[slot] = tagId;
+            codecs[slot] = codec;
+            table.insert(tagId, slot);
+            size = slot + 1;
+            return slot;
+        }
+        codecs[slot] = codec;
+        // publishes the replaced codec to readers looking up the slot
+        size = size;
+        return slot;
+    }
+
+    /**
+     * Get the slot of a tag
+     *
+     * @param tagId of the data tag
+     * @return slot of the tag or -1 if it has none
+     */
+    public int slotOf(long tagId) {
+        return find(tagId);
+    }
+
+    /**
+     * Get the number of tags, their slots are 0 to size - 1
+     *
+     * @return number of tags with a slot
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTagId(int slot) {
+        return tagIds[slot];
+    }
+
+    public TagCodec getCodec(int slot) {
+        return codecs[slot];
+    }
+
+    /**
+     * Check if a value of the tag was published before
+     *
+     * @param slot of the tag
+     * @return true if the last bits hold the last published raw value
+     */
+    public boolean hasValue(int slot) {
+        return publishedAt[slot] != 0;
+    }
+
+    /**
+     * Get the bits of the last published raw value of the tag, only valid if it has a value
+     *
+     * @param slot of the tag
+     * @return bits of the value, see {@link TagCodec#decode(int[], int, int)}
+     */
+    public long getLastBits(int slot) {
+        return lastBits[slot];
+    }
+
+    /**
+     * Get the time the last value of the tag was published
+     *
+     * @param slot of the tag
+     * @return time in milliseconds, 0 if no value was published
+     */
+    public long getPublishedAt(int slot) {
+        return publishedAt[slot];
+    }
+
+    /**
+     * Get the time the tag was read successfully last
+     *
+     * @param slot of the tag
+     * @return time in milliseconds, 0 if it was never read
+     */
+    public long getReadAt(int slot) {
+        return readAt[slot];
+    }
+
+    /**
+     * Check if the tag was read successfully within a time to live, so a refresh can be answered without reading it
+     *
+     * @param slot   of the tag
+     * @param ttl    time to live in milliseconds, nothing is fresh if it is not positive
+     * @param millis current time in milliseconds
+     * @return true if the last read is at most ttl milliseconds old
+     */
+    public boolean isFresh(int slot, long ttl, long millis) {
+        long read = readAt[slot];
+        return ttl > 0 && read != 0 && millis - read <= ttl;
+    }
+
+    /**
+     * Remember that a tag was read successfully
+     *
+     * @param slot   of the tag
+     * @param millis time the tag was read
+     */
+    public synchronized void markRead(int slot, long millis) {
+        readAt[slot] = millis;
+    }
+
+    /**
+     * Remember the last published raw value of a tag
+     *
+     * @param slot   of the tag
+     * @param bits   of the value
+     * @param millis time the value was published
+     */
+    public synchronized void publishBits(int slot, long bits, long millis) {
+        lastBits[slot] = bits;
+        publishedAt[slot] = millis;
+        publicationOf[slot] = ++publications;
+    }
+
+    /**
+     * Remember the raw words of the last published value of an array tag
+     *
+     * @param slot   of the tag
+     * @param words  of the value, not copied
+     * @param millis time the value was published
+     */
+    public synchronized void publishWords(int slot, int[] words, long millis) {
+        lastWords[slot] = words;
+        publishedAt[slot] = millis;
+        publicationOf[slot] = ++publications;
+    }
+
+    /**
+     * Keep the raw words of a single value tag whose value was decoded and compared with the last published value,
+     * whether it was published or not. Tags longer than four words are not kept.
+     *
+     * @param slot   of the tag
+     * @param words  raw register or bit values of a block
+     * @param offset of the tag inside the block
+     * @param length of the tag in words
+     */
+    public synchronized void rememberRawWords(int slot, int[] words, int offset, int length) {
+        if (length > MAX_RAW_WORDS || publicationOf[slot] == 0) {
+            return;
+        }
+        rawWords[slot] = pack(words, offset, length);
+        rawPublication[slot] = publicationOf[slot];
+    }
+
+    /**
+     * Check if the raw words of a single value tag are the same as the ones kept by the last read and no value of the
+     * tag was published since, so decoding them again would give the same result. Whichever block reads the tag, its
+     * last read is compared.
+     *
+     * @param slot   of the tag
+     * @param words  raw register or bit values of a block
+     * @param offset of the tag inside the block
+     * @param length of the tag in words
+     * @return true if the tag does not need to be decoded
+     */
+    public boolean isRawUnchanged(int slot, int[] words, int offset, int length) {
+        long publication = rawPublication[slot];
+        return length <= MAX_RAW_WORDS && publication != 0 && publication == publicationOf[slot]
+                && rawWords[slot] == pack(words, offset, length);
+    }
+
+    private static long pack(int[] words, int offset, int length) {
+        long packed = 0;
+        for (int i = offset; i < offset + length; i++) {
+            packed = packed << 16 | (words[i] & 0xFFFF);
+        }
+        return packed;
+    }
+
+    /**
+     * Check if the raw words of an array tag are the same as the ones last published
+     *
+     * @param slot   of the tag
+     * @param words  raw register or bit values of a block
+     * @param offset of the tag inside the block
+     * @return true if a value was published before and no word changed
+     */
+    public boolean isUnchanged(int slot, int[] words, int offset) {
+        int[] last = lastWords[slot];
+        if (last == null) {
+            return false;
+        }
+        for (int i = 0; i < last.length; i++) {
+            if (last[i] != words[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getPollLevel(int slot) {
+        return pollLevels[slot];
+    }
+
+    void setPollLevel(int slot, int pollLevel) {
+        pollLevels[slot] = pollLevel;
+    }
+
+    int getStableReads(int slot) {
+        return stableReads[slot];
+    }
+
+    void setStableReads(int slot, int reads) {
+        stableReads[slot] = reads;
+    }
+
+    private int find(long tagId) {
+        int published = size;
+        Table current = table;
+        int mask = current.buckets.length - 1;
+        for (int i = hash(tagId) & mask; current.buckets[i] != 0; i = (i + 1) & mask) {
+            if (current.keys[i] == tagId) {
+                int slot = current.buckets[i] - 1;
+                return slot < published ? slot : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Double the capacity, the table is built anew so it stays at most half full
+     */
+    private void grow() {
+        int capacity = tagIds.length * 2;
+        tagIds = Arrays.copyOf(tagIds, capacity);
+        codecs = Arrays.copyOf(codecs, capacity);
+        lastBits = Arrays.copyOf(lastBits, capacity);
+        lastWords = Arrays.copyOf(lastWords, capacity);
+        publishedAt = Arrays.copyOf(publishedAt, capacity);
+        publicationOf = Arrays.copyOf(publicationOf, capacity);
+        rawWords = Arrays.copyOf(rawWords, capacity);
+        rawPublication = Arrays.copyOf(rawPublication, capacity);
+        readAt = Arrays.copyOf(readAt, capacity);
+        pollLevels = Arrays.copyOf(pollLevels, capacity);
+        stableReads = Arrays.copyOf(stableReads, capacity);
+        Table grown = new Table(capacity * 2);
+        for (int slot = 0; slot < size; slot++) {
+            grown.insert(tagIds[slot], slot);
+        }
+        table = grown;
+    }
+
+    /**
+     * Spread the bits of a tag id over the buckets of the table, package private for the tests
+     *
+     * @param tagId of the data tag
+     * @return hash of the tag id
+     */
+    static int hash(long tagId) {
+        long h = tagId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Open addressing table with linear probing from tag ids to slots
+     */
+    private static class Table {
+
+        private final long[] keys;
+        /**
+         * Slot plus one of each bucket, 0 for an empty bucket
+         */
+        private final int[] buckets;
+
+        private Table(int capacity) {
+            keys = new long[capacity];
+            buckets = new int[capacity];
+        }
+
+        private void insert(long tagId, int slot) {
+            int mask = buckets.length - 1;
+            int i = hash(tagId) & mask;
+            while (buckets[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = tagId;
+            buckets[i] = slot + 1;
+        }
+    }
+}
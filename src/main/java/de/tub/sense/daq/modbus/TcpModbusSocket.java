@@ -6,9 +6,12 @@ import com.ghgande.j2mod.modbus.msg.ModbusRequest;
 import com.ghgande.j2mod.modbus.msg.ModbusResponse;
 import com.ghgande.j2mod.modbus.net.TCPMasterConnection;
 
+import lombok.extern.slf4j.Slf4j;
+
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
+@Slf4j
 public class TcpModbusSocket extends ModbusFunctionFactory {
 
     private final TCPMasterConnection oConnection;
@@ -35,6 +38,7 @@ public class TcpModbusSocket extends ModbusFunctionFactory {
      * @return true if connection success false if not
      * @throws Exception if something goes wrong while connecting
      */
+    @Override
     public boolean connect() throws Exception {
         if (getConnection().isConnected())
             return true;
@@ -45,12 +49,35 @@ public class TcpModbusSocket extends ModbusFunctionFactory {
     /**
      * Disconnect gently from ModbusTCP
      */
+    @Override
     public void disconnect() {
         getConnection().close();
     }
 
     /**
-     * Execute a modbus request
+     * Check if the connection is established
+     *
+     * @return true if connected, false if not
+     */
+    @Override
+    public boolean isConnected() {
+        return getConnection().isConnected();
+    }
+
+    /**
+     * Change the timeout of the connection, a request is sent only once per call so the timeout is not multiplied
+     * by retries
+     *
+     * @param timeout in milliseconds
+     */
+    @Override
+    public void setTimeout(int timeout) {
+        getConnection().setTimeout(timeout);
+    }
+
+    /**
+     * Execute a modbus request. If the transaction fails without an answer, the connection is opened again, because a
+     * reply arriving after the timeout would otherwise be read as the response of the next request.
      *
      * @param request you want to execute
      * @return response of the request
@@ -63,11 +90,30 @@ public class TcpModbusSocket extends ModbusFunctionFactory {
                             "]");
         ModbusTransaction trans = getConnection().getModbusTransport().createTransaction();
         if (this.oUnitID > 0) request.setUnitID(this.oUnitID);
+        trans.setRetries(1);
         trans.setRequest(request);
-        trans.execute();
+        try {
+            trans.execute();
+        } catch (ModbusIOException e) {
+            reopen();
+            throw e;
+        }
         return trans.getResponse();
     }
 
+    /**
+     * Close the connection and open it again, discarding whatever the device still sends on the old one. If it can
+     * not be opened again, the next request or the connection manager tries again.
+     */
+    private void reopen() {
+        getConnection().close();
+        try {
+            getConnection().connect();
+        } catch (Exception e) {
+            log.debug("Could not open the connection again: {}", e.getMessage());
+        }
+    }
+
     /**
      * Get the currently active connection
      *
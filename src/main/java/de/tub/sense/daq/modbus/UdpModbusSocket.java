@@ -0,0 +1,169 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.PortUnreachableException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modbus UDP transport. Every request is sent as one MBAP frame in one datagram, a reader thread matches the response
+ * datagrams to the requests by their transaction id. There is no connection which could block behind a lost frame or
+ * has to be opened again, a request without answer fails after the timeout and is sent again by the retries of the
+ * {@link PrioritizedModbusSocket}. Responses arriving after their request timed out are discarded.
+ *
+ * @created 17/10/2026 - 19:10
+ * @project DAQConfigLoader
+ */
+
+@Slf4j
+public class UdpModbusSocket extends ModbusFunctionFactory {
+
+    private final InetAddress address;
+    private final int port;
+    private final int unitId;
+    private final PendingTransactions pending;
+    private volatile DatagramSocket socket;
+
+    public UdpModbusSocket(String host, int port, int unitId, int pipelineDepth) throws UnknownHostException {
+        this(host, port, unitId, pipelineDepth, PipelinedTcpModbusSocket.DEFAULT_TIMEOUT);
+    }
+
+    public UdpModbusSocket(String host, int port, int unitId, int pipelineDepth, int timeout) throws UnknownHostException {
+        this.address = InetAddress.getByName(host);
+        this.port = port;
+        this.unitId = unitId;
+        this.pending = new PendingTransactions(pipelineDepth, timeout);
+    }
+
+    /**
+     * Open a datagram socket bound to the device and start the thread reading the responses
+     *
+     * @return true if the socket is open
+     * @throws IOException if the socket could not be opened
+     */
+    @Override
+    public synchronized boolean connect() throws IOException {
+        if (isConnected()) {
+            return true;
+        }
+        DatagramSocket newSocket = new DatagramSocket();
+        newSocket.connect(address, port);
+        socket = newSocket;
+        Thread reader = new Thread(() -> readResponses(newSocket),
+                "modbus-udp-reader-" + address.getHostAddress() + ":" + port);
+        reader.setDaemon(true);
+        reader.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        DatagramSocket current = socket;
+        if (current != null) {
+            socket = null;
+            current.close();
+            pending.failAll(new ModbusIOException("Connection closed"));
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        DatagramSocket current = socket;
+        return current != null && !current.isClosed();
+    }
+
+    /**
+     * Execute a modbus request and wait for its response
+     *
+     * @param request you want to execute
+     * @return response of the request
+     * @throws Exception if something goes wrong while executing
+     */
+    @Override
+    protected ModbusResponse execute(ModbusRequest request) throws Exception {
+        return await(submit(request));
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        pending.setTimeout(timeout);
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    /**
+     * Send a request as soon as a pipeline slot is free. Blocks the caller while the pipeline is full.
+     *
+     * @param request you want to execute
+     * @return future completed with the response, or exceptionally on timeout
+     */
+    @Override
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        int id;
+        DatagramSocket current;
+        try {
+            connect();
+            current = socket;
+            id = pending.begin(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        } catch (Exception e) {
+            future.completeExceptionally(new ModbusIOException("Could not open udp socket [" + address + ":" + port + "]"));
+            return future;
+        }
+        if (this.unitId > 0) request.setUnitID(this.unitId);
+        byte[] frame = MbapFrameCodec.encode(request, id);
+        try {
+            current.send(new DatagramPacket(frame, frame.length));
+        } catch (IOException e) {
+            future.completeExceptionally(new ModbusIOException("Could not send request to " + address + ":" + port + ": " + e.getMessage()));
+        }
+        return future;
+    }
+
+    /**
+     * Receive datagrams until the socket is closed and complete the pending request of each response frame
+     *
+     * @param source socket to receive from
+     */
+    private void readResponses(DatagramSocket source) {
+        byte[] frame = new byte[MbapFrameCodec.MAX_FRAME_LENGTH];
+        DatagramPacket packet = new DatagramPacket(frame, frame.length);
+        while (!source.isClosed()) {
+            try {
+                packet.setLength(frame.length);
+                source.receive(packet);
+            } catch (PortUnreachableException e) {
+                // the device is not listening, the pending requests time out
+                log.debug("Udp port of {}:{} unreachable", address, port);
+                continue;
+            } catch (IOException e) {
+                if (!source.isClosed()) {
+                    log.warn("Could not receive from {}:{}: {}", address, port, e.getMessage());
+                }
+                continue;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(frame, 0, packet.getLength());
+            if (packet.getLength() <= MbapFrameCodec.HEADER_LENGTH || MbapFrameCodec.frameLength(buffer) != packet.getLength()) {
+                log.debug("Discarding malformed datagram of {} bytes from {}:{}", packet.getLength(), address, port);
+                continue;
+            }
+            pending.complete(buffer);
+        }
+    }
+}
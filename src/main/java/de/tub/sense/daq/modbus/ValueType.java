@@ -0,0 +1,274 @@
+package de.tub.sense.daq.modbus;
+
+import java.util.Optional;
+
+/**
+ * Primitive value types of the tags. Values are decoded from the raw register words into the bits of a long, so
+ * they can be compared and cached without boxing. A value is only boxed when it is published.
+ *
+ * @created 17/10/2026 - 14:02
+ * @project DAQConfigLoader
+ */
+
+public enum ValueType {
+
+    BOOLEAN,
+    BYTE,
+    SHORT,
+    INTEGER,
+    LONG,
+    FLOAT,
+    DOUBLE;
+
+    /**
+     * Get the value type of a data type from the config file or the C2mon server
+     *
+     * @param dataType e.g. s16 or java.lang.Short
+     * @return value type of the data type or empty if the data type is not supported
+     */
+    public static Optional<ValueType> fromDataType(String dataType) {
+        if (dataType == null) {
+            return Optional.empty();
+        }
+        switch (dataType) {
+            case "bool":
+            case "java.lang.Boolean":
+                return Optional.of(BOOLEAN);
+            case "s8":
+            case "u8":
+            case "java.lang.Byte":
+                return Optional.of(BYTE);
+            case "s16":
+            case "u16":
+            case "java.lang.Short":
+                return Optional.of(SHORT);
+            case "u32":
+            case "s32":
+            case "java.lang.Integer":
+                return Optional.of(INTEGER);
+            case "s64":
+            case "u64":
+            case "java.lang.Long":
+                return Optional.of(LONG);
+            case "float32":
+            case "java.lang.Float":
+                return Optional.of(FLOAT);
+            case "java.lang.Double":
+            case "float64":
+                return Optional.of(DOUBLE);
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /**
+     * Decode a value from big endian register words. Words beyond the given length are read as zero.
+     *
+     * @param words     raw register values
+     * @param offset    of the first word of the value
+     * @param length    number of words the value occupies
+     * @param bitNumber of a boolean inside the first word
+     * @return bits of the value
+     */
+    public long decode(int[] words, int offset, int length, int bitNumber) {
+        switch (this) {
+            case BOOLEAN:
+                return (word(words, offset, length, 0) >> bitNumber) & 1;
+            case BYTE:
+                return (byte) (word(words, offset, length, 0) >> 8);
+            case SHORT:
+                return (short) word(words, offset, length, 0);
+            case INTEGER:
+            case FLOAT:
+                return (word(words, offset, length, 0) << 16) | word(words, offset, length, 1);
+            case LONG:
+            case DOUBLE:
+                return ((long) word(words, offset, length, 0) << 48) | ((long) word(words, offset, length, 1) << 32)
+                        | ((long) word(words, offset, length, 2) << 16) | word(words, offset, length, 3);
+            default:
+                throw new IllegalStateException("Unknown value type " + this);
+        }
+    }
+
+    private static int word(int[] words, int offset, int length, int index) {
+        return index < length ? words[offset + index] & 0xFFFF : 0;
+    }
+
+    /**
+     * Box the bits of a value into the object published to the C2mon server
+     *
+     * @param bits of the value
+     * @return boxed value
+     */
+    public Object box(long bits) {
+        switch (this) {
+            case BOOLEAN:
+                return bits != 0;
+            case BYTE:
+                return (byte) bits;
+            case SHORT:
+                return (short) bits;
+            case INTEGER:
+                return (int) bits;
+            case LONG:
+                return bits;
+            case FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+            default:
+                throw new IllegalStateException("Unknown value type " + this);
+        }
+    }
+
+    /**
+     * Get the numeric value of the bits
+     *
+     * @param bits of the value
+     * @return value as double
+     */
+    public double toDouble(long bits) {
+        switch (this) {
+            case FLOAT:
+                return Float.intBitsToFloat((int) bits);
+            case DOUBLE:
+                return Double.longBitsToDouble(bits);
+            default:
+                return bits;
+        }
+    }
+
+    /**
+     * Get the bits of a boxed value of this type
+     *
+     * @param value boxed value
+     * @return bits of the value
+     */
+    public long toBits(Object value) {
+        switch (this) {
+            case BOOLEAN:
+                return (boolean) value ? 1 : 0;
+            case FLOAT:
+                return Float.floatToIntBits(((Number) value).floatValue());
+            case DOUBLE:
+                return Double.doubleToLongBits(((Number) value).doubleValue());
+            default:
+                return ((Number) value).longValue();
+        }
+    }
+
+    /**
+     * Get the absolute difference of two values, used to check the threshold of a tag.
+     * Float values are subtracted with float precision.
+     *
+     * @param bits     of the new value
+     * @param prevBits of the previous value
+     * @return absolute difference of the values
+     */
+    public double distance(long bits, long prevBits) {
+        if (this == FLOAT) {
+            return Math.abs(Float.intBitsToFloat((int) bits) - Float.intBitsToFloat((int) prevBits));
+        }
+        return Math.abs(toDouble(bits) - toDouble(prevBits));
+    }
+
+    /**
+     * Apply multiplier and offset to a value and box it. Integral values are truncated after each step.
+     *
+     * @param bits       of the raw value
+     * @param multiplier of the tag
+     * @param offset     of the tag
+     * @return boxed scaled value
+     */
+    public Object scale(long bits, double multiplier, double offset) {
+        switch (this) {
+            case BOOLEAN:
+                return bits != 0;
+            case BYTE:
+                return (byte) ((byte) (bits * multiplier) + offset);
+            case SHORT:
+                return (short) ((short) (bits * multiplier) + offset);
+            case INTEGER:
+                return (int) ((int) (bits * multiplier) + offset);
+            case LONG:
+                return (long) ((long) (bits * multiplier) + offset);
+            case FLOAT:
+                return (float) ((float) (Float.intBitsToFloat((int) bits) * multiplier) + offset);
+            case DOUBLE:
+                return Double.longBitsToDouble(bits) * multiplier + offset;
+            default:
+                throw new IllegalStateException("Unknown value type " + this);
+        }
+    }
+
+    /**
+     * Create a primitive array for values of this type, published by array tags
+     *
+     * @param length of the array
+     * @return e.g. a float[] for float values
+     */
+    public Object newArray(int length) {
+        switch (this) {
+            case BOOLEAN:
+                return new boolean[length];
+            case BYTE:
+                return new byte[length];
+            case SHORT:
+                return new short[length];
+            case INTEGER:
+                return new int[length];
+            case LONG:
+                return new long[length];
+            case FLOAT:
+                return new float[length];
+            case DOUBLE:
+                return new double[length];
+            default:
+                throw new IllegalStateException("Unknown value type " + this);
+        }
+    }
+
+    /**
+     * Store the bits of a value in a primitive array created by {@link #newArray(int)} without boxing it
+     *
+     * @param array of this type
+     * @param index of the element
+     * @param bits  of the value
+     */
+    public void set(Object array, int index, long bits) {
+        switch (this) {
+            case BOOLEAN:
+                ((boolean[]) array)[index] = bits != 0;
+                break;
+            case BYTE:
+                ((byte[]) array)[index] = (byte) bits;
+                break;
+            case SHORT:
+                ((short[]) array)[index] = (short) bits;
+                break;
+            case INTEGER:
+                ((int[]) array)[index] = (int) bits;
+                break;
+            case LONG:
+                ((long[]) array)[index] = bits;
+                break;
+            case FLOAT:
+                ((float[]) array)[index] = Float.intBitsToFloat((int) bits);
+                break;
+            case DOUBLE:
+                ((double[]) array)[index] = Double.longBitsToDouble(bits);
+                break;
+            default:
+                throw new IllegalStateException("Unknown value type " + this);
+        }
+    }
+
+    /**
+     * Check if the threshold of a tag applies to the value type
+     *
+     * @return true for float and double values
+     */
+    public boolean isFloatingPoint() {
+        return this == FLOAT || this == DOUBLE;
+    }
+}
@@ -7,16 +7,39 @@ import cern.c2mon.shared.common.datatag.ISourceDataTag;
 import cern.c2mon.shared.common.datatag.ValueUpdate;
 import cern.c2mon.shared.common.process.IEquipmentConfiguration;
 import cern.c2mon.shared.daq.command.SourceCommandTagValue;
+import com.google.common.math.LongMath;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import de.tub.sense.daq.config.xml.EquipmentAddress;
 import de.tub.sense.daq.config.xml.HardwareAddress;
+import de.tub.sense.daq.modbus.BlockBisection;
 import de.tub.sense.daq.modbus.ModbusTCPService;
+import de.tub.sense.daq.modbus.PollRateAdapter;
+import de.tub.sense.daq.modbus.PollScheduler;
+import de.tub.sense.daq.modbus.ReadBlock;
+import de.tub.sense.daq.modbus.ReadFailure;
+import de.tub.sense.daq.modbus.ReadPlanner;
+import de.tub.sense.daq.modbus.RegisterType;
+import de.tub.sense.daq.modbus.TagCodec;
+import de.tub.sense.daq.modbus.TagQuarantine;
+import de.tub.sense.daq.modbus.TagStateStore;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
@@ -30,22 +53,103 @@ import java.util.concurrent.TimeUnit;
 @NoArgsConstructor
 public class DAQMessageHandler extends EquipmentMessageHandler implements ICommandRunner {
 
-    private final HashMap<Long, Object> valueCache = new HashMap<>();
-    private final HashMap<Long, HardwareAddress> addressCache = new HashMap<>();
-    private final HashMap<Long, String> dataTypeCache = new HashMap<>();
+    /**
+     * Shortest tick of the poll wheel in milliseconds, shorter poll intervals are rounded to it
+     */
+    private static final long MIN_POLL_TICK = 10;
+
+    /**
+     * Maximum number of polls in a row a tag is deferred when polling falls behind, it is read in the next one
+     */
+    private static final int MAX_DEFERRED_POLLS = 3;
+
+    /**
+     * Refresh threads shared by all equipments using the nio transport, so the number of threads does not grow with
+     * the number of devices
+     */
+    private static final ScheduledExecutorService SHARED_REFRESH_EXECUTOR = Executors.newScheduledThreadPool(
+            Runtime.getRuntime().availableProcessors() * 2,
+            new ThreadFactoryBuilder().setNameFormat("refresh-%d").setDaemon(true).build());
+
+    /**
+     * Codecs and last published values of the data tags, written by the refresh thread and by commands publishing
+     * the registers they read back
+     */
+    private final TagStateStore tagStates = new TagStateStore();
+    private final HashMap<Long, TagCodec> commandCodecCache = new HashMap<>();
+    /**
+     * Holding registers read back by the commands, only commands configured with a readback range are contained
+     */
+    private final HashMap<Long, ReadBlock> commandReadbackCache = new HashMap<>();
+    private final List<ReadBlock> readBlocks = new ArrayList<>();
+    /**
+     * Members of the planned tags grouped by their poll interval in milliseconds
+     */
+    private final TreeMap<Long, List<ReadBlock.Member>> pollGroups = new TreeMap<>();
+    /**
+     * Read blocks of the poll groups due in the same tick, by the sorted poll intervals of the groups
+     */
+    private final HashMap<List<Long>, List<ReadBlock>> duePlans = new HashMap<>();
+    private PollScheduler pollScheduler;
+    /**
+     * Number of polls in a row each tag was deferred because polling fell behind
+     */
+    private final HashMap<Long, Integer> deferredPolls = new HashMap<>();
+    private PollRateAdapter pollRateAdapter;
+    /**
+     * Set when the poll interval of an adaptive tag changed, the poll groups are formed again on the next tick
+     */
+    private volatile boolean pollRateChanged = false;
+    /**
+     * Replaced as a whole when the read blocks are planned, so commands can look up members without locking
+     */
+    private volatile List<ReadBlock.Member> blockMembers = Collections.emptyList();
+    /**
+     * Set while the reads of an asynchronous poll are in flight, ticks elapsed meanwhile are merged into the next poll
+     */
+    private volatile boolean pollInFlight = false;
+    /**
+     * Publish the polled values from the completion of the reads instead of waiting for them on the refresh thread,
+     * used with the nio transport whose refresh threads are shared by all equipments
+     */
+    private boolean asyncPolling = false;
+    private final TagQuarantine quarantine = new TagQuarantine();
+    private boolean quarantineChanged = false;
     private IEquipmentMessageSender equipmentMessageSender;
-    private boolean autoRefreshRunning = false;
+    private volatile boolean autoRefreshRunning = false;
+    /**
+     * Executor of the auto refresh, the shared refresh executor with the nio transport
+     */
+    private ScheduledExecutorService refreshExecutor;
+    /**
+     * Task advancing the poll wheel, cancelled on disconnect
+     */
+    private ScheduledFuture<?> autoRefresh;
     private IEquipmentConfiguration equipmentConfiguration;
+    private EquipmentAddress equipmentAddress;
     private ModbusTCPService modbusTCPService;
     private int skipped = 0;
     private int threshold_skipped = 0;
     private int tagCount = 0;
+    /**
+     * Number of tag values read since the statistics were logged last
+     */
+    private int polled = 0;
+    /**
+     * Number of tag refreshes answered from values read within the read cache ttl since the statistics were logged last
+     */
+    private int cached = 0;
+    /**
+     * Time in milliseconds a read value stays fresh for refreshes requested by the server, 0 if every refresh reads
+     */
+    private long readCacheTtl = 0;
     private boolean performanceMode = false;
 
     /**
      * Perform the necessary tasks to connect to the underlying data source. The
      * handler is expected to be ready to publish data as soon as this method
-     * returns.
+     * returns. The connection is kept up in the background, this method waits for it
+     * at most for the timeout of the equipment.
      */
     @Override
     public void connectToDataSource() {
@@ -55,172 +159,637 @@ public class DAQMessageHandler extends EquipmentMessageHandler implements IComma
         equipmentMessageSender = getEquipmentMessageSender();
         getEquipmentCommandHandler().setCommandRunner(this);
 
-        EquipmentAddress equipmentAddress = EquipmentAddress.parseEquipmentAddress(
+        equipmentAddress = EquipmentAddress.parseEquipmentAddress(
                 equipmentConfiguration.getAddress()).orElseThrow(RuntimeException::new);
-        modbusTCPService = new ModbusTCPService();
-        int triedConnection = 0;
-        int sleepTime = 1;
-        while (!modbusTCPService.connect(equipmentAddress.getHost(), equipmentAddress.getPort(), equipmentAddress.getUnitId())) {
-            try {
-                triedConnection++;
-                if (triedConnection > 5) {
-                    sleepTime = 5;
-                }
-                if (triedConnection > 20) {
-                    sleepTime = 20;
-                }
-                if (triedConnection > 100) {
-                    sleepTime = 300;
-                }
-                log.error("Connection to modbus failed. Trying again in {} second(s)...", sleepTime);
-                TimeUnit.MILLISECONDS.sleep(sleepTime * 1000);
-            } catch (InterruptedException e) {
-                log.warn("Interrupted exception occurred while waiting for connection", e);
-            }
+        readCacheTtl = Math.max(0, equipmentAddress.getReadCacheTtl());
+        if (pollRateAdapter == null) {
+            pollRateAdapter = new PollRateAdapter(equipmentAddress.getMinPollInterval(), equipmentAddress.getMaxPollInterval(), tagStates);
+        }
+        if (modbusTCPService == null) {
+            modbusTCPService = new ModbusTCPService();
+        }
+        if (!modbusTCPService.connect(equipmentAddress)) {
+            log.error("Connection to modbus failed. Connecting in the background...");
         }
     }
 
     /**
-     * Disconnect and release any resources to allow a clean shutdown.
+     * Disconnect and release any resources to allow a clean shutdown. The auto refresh is stopped, it is started
+     * again by the first refresh after connecting again.
      */
     @Override
     public void disconnectFromDataSource() {
         log.info("Disconnecting from datasource...");
-        modbusTCPService.disconnect();
+        stopAutoRefresh();
+        if (modbusTCPService != null) {
+            modbusTCPService.disconnect();
+        }
         log.info("Disconnected from datasource.");
     }
 
     /**
      * Publish the latest value of all tags on request.
-     * Starts if not already started a thread which schedules this function at a fixed rate
+     * Starts if not already started a thread which polls the tags at their poll intervals. The first refresh resolves
+     * the codecs of all tags, plans the read blocks and reads them like a poll does. If the connection is not up yet,
+     * the polling is started anyway and publishes the values as soon as it is.
      */
     @Override
     public void refreshAllDataTags() {
         log.info("Refreshing all data tags ...");
-        if (!modbusTCPService.isConnected()) {
-            log.warn("Modbus TCP connection lost, trying to reconnect...");
-            equipmentMessageSender.confirmEquipmentStateIncorrect("Modbus TCP connection lost, trying to reconnect...");
-            connectToDataSource();
-            return;
-        } else {
-            equipmentMessageSender.confirmEquipmentStateOK("Everything fine.");
-        }
+        boolean connected = confirmConnection();
         long millis = System.currentTimeMillis();
-        skipped = 0;
-        threshold_skipped = 0;
         if (!autoRefreshRunning) {
-            equipmentConfiguration.getSourceDataTags().keySet().forEach(this::refreshDataTag);
+            equipmentConfiguration.getSourceDataTags().keySet().forEach(this::resolveCodec);
             tagCount = equipmentConfiguration.getSourceDataTags().size();
+            planReadBlocks();
+            if (connected) {
+                refreshReadBlocks(readBlocks);
+            }
+        } else if (connected) {
+            refreshReadBlocks(getStaleBlocks(millis));
+            retryQuarantinedTags();
+        } else {
+            return;
+        }
+        finishCycle(millis);
+    }
+
+    /**
+     * Advance the poll wheel by the ticks elapsed since the last poll and read the tags of all poll groups due with
+     * shared read blocks. Ticks elapsed while the last poll was still running are merged into this one instead of
+     * being polled back to back. Whenever the refresh interval of the equipment is due, the cycle is completed like
+     * a refresh of all data tags: the equipment state is confirmed, quarantined tags are retried and the statistics
+     * are logged. Adaptive tags whose poll interval changed since the last tick move to the poll group of their new
+     * interval. While polling falls behind, tags with a low priority are deferred. With asynchronous polling the
+     * values are published when all reads completed, the refresh thread returns as soon as the reads are sent.
+     */
+    private void pollDueTags() {
+        if (pollInFlight) {
+            return;
+        }
+        try {
+            if (pollRateChanged) {
+                pollRateChanged = false;
+                groupMembers();
+            }
+            List<Long> due = pollScheduler.advance(System.currentTimeMillis());
+            if (due.isEmpty()) {
+                return;
+            }
+            boolean cycle = due.contains(getRefreshInterval());
+            long millis = System.currentTimeMillis();
+            if (cycle) {
+                log.info("Refreshing all data tags ...");
+                if (!confirmConnection()) {
+                    return;
+                }
+            } else if (!modbusTCPService.isConnected()) {
+                return;
+            }
+            int shedLevel = pollScheduler.getShedLevel();
+            List<ReadBlock> blocks = shedLevel > 0 ? getPrioritizedBlocks(due, shedLevel) : getDueBlocks(due);
+            if (asyncPolling) {
+                pollInFlight = true;
+                pollAsync(blocks, cycle, millis);
+                return;
+            }
+            refreshReadBlocks(blocks);
+            pollScheduler.finish(System.currentTimeMillis());
+            // a poll still running on disconnect must not start the auto refresh again
+            if (cycle && autoRefreshRunning) {
+                retryQuarantinedTags();
+                finishCycle(millis);
+            }
+        } catch (RuntimeException e) {
+            pollInFlight = false;
+            log.error("Unexpected error while polling data tags", e);
+        }
+    }
+
+    /**
+     * Send the reads of a poll and publish the values on a shared refresh thread once all of them completed. Rejected
+     * blocks are bisected by chaining the reads of their halves as well. The next poll starts after the cycle is
+     * finished.
+     *
+     * @param blocks to read
+     * @param cycle  true if the refresh interval of the equipment is due
+     * @param millis start of the poll
+     */
+    private void pollAsync(List<ReadBlock> blocks, boolean cycle, long millis) {
+        List<CompletableFuture<int[]>> pendingReads = sendReads(blocks);
+        whenAllCompleted(pendingReads)
+                .thenComposeAsync(ignored -> isolateRejectedTags(publishReads(blocks, pendingReads, true)),
+                        SHARED_REFRESH_EXECUTOR)
+                .thenCompose(ignored -> {
+                    pollScheduler.finish(System.currentTimeMillis());
+                    if (!cycle) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    List<ReadBlock> retries = getQuarantineRetries();
+                    List<CompletableFuture<int[]>> pendingRetries = sendReads(retries);
+                    return whenAllCompleted(pendingRetries)
+                            .thenRunAsync(() -> publishRetries(retries, pendingRetries), SHARED_REFRESH_EXECUTOR);
+                })
+                .whenComplete((ignored, e) -> {
+                    try {
+                        if (e != null) {
+                            log.error("Unexpected error while polling data tags", e);
+                        } else if (cycle && autoRefreshRunning) {
+                            finishCycle(millis);
+                        }
+                    } catch (RuntimeException finishError) {
+                        log.error("Unexpected error while polling data tags", finishError);
+                    } finally {
+                        pollInFlight = false;
+                    }
+                });
+    }
+
+    /**
+     * Get a future completing when all reads completed, successfully or not
+     *
+     * @param pendingReads to wait for
+     * @return future completing normally after the last read
+     */
+    private static CompletableFuture<Void> whenAllCompleted(List<CompletableFuture<int[]>> pendingReads) {
+        return CompletableFuture.allOf(pendingReads.toArray(new CompletableFuture<?>[0])).handle((ignored, e) -> null);
+    }
+
+    /**
+     * Confirm the state of the equipment. If the connection is lost, the equipment is reported incorrect while the
+     * connection is established again in the background.
+     *
+     * @return true if the connection is established
+     */
+    private boolean confirmConnection() {
+        if (!modbusTCPService.isConnected()) {
+            log.warn("Modbus TCP connection {}, reconnecting in the background...",
+                    modbusTCPService.getConnectionState().map(state -> state.name().toLowerCase(Locale.ROOT)).orElse("lost"));
+            equipmentMessageSender.confirmEquipmentStateIncorrect("Modbus TCP connection lost, reconnecting in the background...");
+            return false;
+        } else if (quarantine.isEmpty()) {
+            equipmentMessageSender.confirmEquipmentStateOK("Everything fine.");
         } else {
-            dataTypeCache.keySet().forEach(this::refreshDataTag);
+            equipmentMessageSender.confirmEquipmentStateOK(quarantine.describe());
         }
+        return true;
+    }
+
+    /**
+     * Log the statistics of all tags polled since the last cycle and plan the read blocks again if the device
+     * profile or the quarantined tags changed. The first cycle starts the auto refresh.
+     *
+     * @param millis start of the cycle
+     */
+    private void finishCycle(long millis) {
         long millis2 = System.currentTimeMillis();
         long time = millis2 - millis;
-        log.info("Refreshed all data tags successful took {}ms | skipped {}/{} (equal) | skipped {}/{} (threshold) | updated {}/{}"
-                , time, skipped, tagCount, threshold_skipped, tagCount, tagCount - threshold_skipped - skipped, tagCount);
+        log.info("Refreshed all data tags successful took {}ms | skipped {}/{} (equal) | skipped {}/{} (deadband) | updated {}/{} | quarantined {}/{}"
+                , time, skipped, polled, threshold_skipped, polled, polled - threshold_skipped - skipped, polled,
+                quarantine.size(), tagCount);
+        long coalesced = modbusTCPService.takeCoalescedReads();
+        if (cached > 0 || coalesced > 0) {
+            log.info("Answered {} data tag refresh(es) from values read within {}ms | {} block read(s) joined a read in flight",
+                    cached, readCacheTtl, coalesced);
+        }
+        skipped = 0;
+        threshold_skipped = 0;
+        polled = 0;
+        cached = 0;
+        modbusTCPService.getCommandLatency().filter(latency -> latency.getCount() > 0).ifPresent(latency -> {
+            log.info("{} command request(s) waited for the modbus connection {}ms on average and {}ms at most",
+                    latency.getCount(), String.format("%.1f", latency.getMeanMillis()), String.format("%.1f", latency.getMaxMillis()));
+            latency.reset();
+        });
+        if (pollScheduler != null) {
+            logPollDeadlines();
+        }
+        boolean profileChanged = modbusTCPService.getDeviceProfile().takeChanged();
+        if (profileChanged) {
+            log.info("Learned {}, planning the read blocks again", modbusTCPService.getDeviceProfile());
+        }
+        if (profileChanged || quarantineChanged) {
+            quarantineChanged = false;
+            planReadBlocks();
+        }
         if (!autoRefreshRunning) {
             startAutoRefresh();
         }
     }
 
     /**
-     * Publish the latest value of a single tag on request.
+     * Groups all cached data tags into read blocks, so every refresh cycle needs as few modbus requests as possible.
+     * The limits and costs of the read requests are taken from the device profile learned by the modbus tcp service.
+     * Quarantined tags are left out. The tags are grouped by their poll interval as well, the blocks of the groups
+     * due together are planned on first use. The state of every tag is kept in its slot of the tag state store, so the
+     * last published value and the adapted poll interval are the same whichever plan reads it. Synchronized because
+     * the refresh iterates over the read blocks.
+     */
+    private synchronized void planReadBlocks() {
+        readBlocks.clear();
+        List<ReadBlock.Member> members = new ArrayList<>();
+        for (int slot = 0; slot < tagStates.size(); slot++) {
+            long tagId = tagStates.getTagId(slot);
+            if (!quarantine.isQuarantined(tagId)) {
+                members.add(new ReadBlock.Member(tagId, slot, tagStates.getCodec(slot)));
+            }
+        }
+        readBlocks.addAll(new ReadPlanner(modbusTCPService.getDeviceProfile()).planMembers(members));
+        blockMembers = members;
+        groupMembers();
+        log.info("Reading {} data tags with {} block requests in {} poll group(s)", members.size(), readBlocks.size(), pollGroups.size());
+    }
+
+    /**
+     * Group the planned tags by their current poll interval. The blocks of the groups due together are planned again
+     * on first use.
+     */
+    private synchronized void groupMembers() {
+        pollGroups.clear();
+        duePlans.clear();
+        deferredPolls.clear();
+        for (ReadBlock.Member member : blockMembers) {
+            pollGroups.computeIfAbsent(getPollInterval(member), k -> new ArrayList<>()).add(member);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Polling data tags in {} poll group(s) every {}ms", pollGroups.size(), pollGroups.keySet());
+        }
+    }
+
+    /**
+     * Get the read blocks of the poll groups due in the same tick, while no tag is deferred. Each combination of due
+     * groups is planned once.
      *
-     * @param tagId the id of the data tag to refresh.
+     * @param due poll intervals of the groups due
+     * @return read blocks covering all tags of the due groups
      */
-    @Override
-    public void refreshDataTag(long tagId) {
-        if (log.isTraceEnabled()) {
-            log.trace("Refreshing data tag {}...", tagId);
+    private synchronized List<ReadBlock> getDueBlocks(List<Long> due) {
+        deferredPolls.clear();
+        if (due.containsAll(pollGroups.keySet())) {
+            return readBlocks;
         }
-        try {
-            HardwareAddress hardwareAddress;
-            String datatype;
-            if (!autoRefreshRunning) {
-                ISourceDataTag dataTag = equipmentConfiguration.getSourceDataTag(tagId);
-                hardwareAddress = HardwareAddress.parseHardwareAddressFromXML(dataTag.getHardwareAddress().toConfigXML()).orElseThrow(RuntimeException::new);
-                datatype = dataTag.getDataType();
-                addressCache.put(tagId, hardwareAddress);
-                dataTypeCache.put(tagId, datatype);
+        Collections.sort(due);
+        return duePlans.computeIfAbsent(due, intervals -> {
+            List<ReadBlock.Member> members = new ArrayList<>();
+            for (Long interval : intervals) {
+                members.addAll(pollGroups.getOrDefault(interval, Collections.emptyList()));
+            }
+            return new ReadPlanner(modbusTCPService.getDeviceProfile()).planMembers(members);
+        });
+    }
+
+    /**
+     * Get the read blocks of the poll groups due while polling falls behind. Tags with a priority below the shed level
+     * are deferred, unless they were deferred in the last polls already. The blocks are planned for every poll, as
+     * the deferred tags change from poll to poll.
+     *
+     * @param due       poll intervals of the groups due
+     * @param shedLevel priority a tag needs to be read in this poll
+     * @return read blocks covering the tags of the due groups which are not deferred
+     */
+    private synchronized List<ReadBlock> getPrioritizedBlocks(List<Long> due, int shedLevel) {
+        List<ReadBlock.Member> members = new ArrayList<>();
+        int deferred = 0;
+        for (Long interval : due) {
+            for (ReadBlock.Member member : pollGroups.getOrDefault(interval, Collections.emptyList())) {
+                int polls = deferredPolls.getOrDefault(member.getTagId(), 0);
+                if (member.getCodec().getPriority() < shedLevel && polls < MAX_DEFERRED_POLLS) {
+                    deferredPolls.put(member.getTagId(), polls + 1);
+                    deferred++;
+                } else {
+                    deferredPolls.remove(member.getTagId());
+                    members.add(member);
+                }
+            }
+        }
+        pollScheduler.shed(deferred);
+        return new ReadPlanner(modbusTCPService.getDeviceProfile()).planMembers(members);
+    }
+
+    /**
+     * Log how late the polls were since the last cycle, how often the poll groups overran their deadline and how many
+     * tag reads were deferred. Polling in time is only logged on debug level.
+     */
+    private void logPollDeadlines() {
+        Map<Long, Long> overruns = pollScheduler.getOverruns();
+        long shedReads = pollScheduler.getShedReads();
+        if (!overruns.isEmpty() || shedReads > 0) {
+            log.warn("Polling fell behind: started {}ms late on average and {}ms at most | merged {} tick(s) | overruns by poll interval {} | deferred {} tag read(s) | shed level {}",
+                    String.format("%.1f", pollScheduler.getLateness().getMeanMillis()), String.format("%.1f", pollScheduler.getLateness().getMaxMillis()),
+                    pollScheduler.getMergedTicks(), overruns, shedReads, pollScheduler.getShedLevel());
+        } else if (log.isDebugEnabled()) {
+            log.debug("Polling in time: started {}ms late on average and {}ms at most",
+                    String.format("%.1f", pollScheduler.getLateness().getMeanMillis()), String.format("%.1f", pollScheduler.getLateness().getMaxMillis()));
+        }
+        pollScheduler.resetMetrics();
+    }
+
+    /**
+     * Send the read requests of all blocks before waiting for the first response, so a pipelined transport can keep
+     * several of them in flight, then publish the values block by block. Synchronized because the blocks reuse their
+     * read buffers.
+     *
+     * @param blocks to read
+     */
+    private synchronized void refreshReadBlocks(List<ReadBlock> blocks) {
+        for (CompletableFuture<BlockBisection> bisection : publishReads(blocks, sendReads(blocks), false)) {
+            publishBisection(bisection.join());
+        }
+    }
+
+    /**
+     * Send the read requests of all blocks without waiting for their responses
+     *
+     * @param blocks to read
+     * @return pending reads in the order of the blocks
+     */
+    private List<CompletableFuture<int[]>> sendReads(List<ReadBlock> blocks) {
+        List<CompletableFuture<int[]>> pendingReads = new ArrayList<>(blocks.size());
+        for (ReadBlock block : blocks) {
+            pendingReads.add(modbusTCPService.readBlockAsync(block));
+        }
+        return pendingReads;
+    }
+
+    /**
+     * Publish the values of the blocks in the order their reads were sent, waiting for reads still in flight. Blocks
+     * the device rejected are bisected, other failed blocks are skipped until the next poll.
+     *
+     * @param blocks       which were read
+     * @param pendingReads of the blocks
+     * @param async        true to bisect by chaining the reads of the halves, false to wait for them
+     * @return bisections of the rejected blocks, to be published when they completed
+     */
+    private synchronized List<CompletableFuture<BlockBisection>> publishReads(List<ReadBlock> blocks,
+                                                                             List<CompletableFuture<int[]>> pendingReads,
+                                                                             boolean async) {
+        List<CompletableFuture<BlockBisection>> bisections = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            ReadBlock block = blocks.get(i);
+            polled += block.getMembers().size();
+            Optional<int[]> words = modbusTCPService.awaitBlock(block, pendingReads.get(i));
+            if (words.isPresent()) {
+                refreshReadBlock(block, words.get());
+            } else if (ReadFailure.of(pendingReads.get(i)).isRejected()) {
+                bisections.add(async
+                        ? BlockBisection.isolateAsync(modbusTCPService, block, pendingReads.get(i), SHARED_REFRESH_EXECUTOR)
+                        : CompletableFuture.completedFuture(BlockBisection.isolate(modbusTCPService, block, pendingReads.get(i))));
             } else {
-                hardwareAddress = addressCache.get(tagId);
-                datatype = dataTypeCache.get(tagId);
+                skipped += block.getMembers().size();
             }
+        }
+        return bisections;
+    }
 
-            log.trace("Retrieving tag value from modbus tcp service...");
-            Optional<Object> value = modbusTCPService.getValue(hardwareAddress, datatype);
-            if (!value.isPresent()) {
-                log.warn("Failed to read value from tagId {}, skipping update", tagId);
-                skipped++;
-                return;
+    /**
+     * Publish the bisections of the rejected blocks of an asynchronous poll on a shared refresh thread once all of
+     * them completed
+     *
+     * @param bisections of the rejected blocks
+     * @return future completing when the outcome of all bisections is published
+     */
+    private CompletableFuture<Void> isolateRejectedTags(List<CompletableFuture<BlockBisection>> bisections) {
+        if (bisections.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.allOf(bisections.toArray(new CompletableFuture<?>[0]))
+                .thenRunAsync(() -> bisections.forEach(bisection -> publishBisection(bisection.join())), SHARED_REFRESH_EXECUTOR);
+    }
+
+    /**
+     * Publish the values of the halves of a rejected block which could be read and quarantine the rejected tags.
+     * Halves failing for other reasons are skipped until the next refresh.
+     *
+     * @param bisection of a rejected block
+     */
+    private synchronized void publishBisection(BlockBisection bisection) {
+        bisection.getRead().forEach(this::refreshReadBlock);
+        bisection.getFailed().forEach(half -> skipped += half.getMembers().size());
+        bisection.getRejected().forEach(this::quarantineTag);
+    }
+
+    /**
+     * Take a tag whose registers the device rejects out of the read blocks. It is reported once and then retried with
+     * an exponential backoff.
+     *
+     * @param tagId  of the data tag
+     * @param reason why the device rejected the tag
+     */
+    private void quarantineTag(long tagId, String reason) {
+        quarantineChanged = true;
+        if (quarantine.quarantine(tagId, reason, System.currentTimeMillis())) {
+            log.warn("Device rejected reading data tag {} ({}), leaving it out of the read blocks and retrying it with backoff",
+                    tagId, reason);
+        } else {
+            log.debug("Device still rejects reading data tag {} ({})", tagId, reason);
+        }
+    }
+
+    /**
+     * Read the quarantined tags whose backoff expired. Tags which can be read again are published and released into
+     * the read blocks.
+     */
+    private void retryQuarantinedTags() {
+        List<ReadBlock> retries = getQuarantineRetries();
+        publishRetries(retries, sendReads(retries));
+    }
+
+    /**
+     * Get a single tag block for every quarantined tag whose backoff expired. Tags which are no longer configured are
+     * released.
+     *
+     * @return blocks to retry
+     */
+    private synchronized List<ReadBlock> getQuarantineRetries() {
+        List<ReadBlock> retries = new ArrayList<>();
+        for (long tagId : quarantine.due(System.currentTimeMillis())) {
+            int slot = tagStates.slotOf(tagId);
+            if (slot < 0) {
+                quarantine.release(tagId);
+                continue;
             }
-            Object valueObject = value.get();
-            if (!autoRefreshRunning) {
-                valueCache.put(tagId, valueObject);
-                equipmentMessageSender.update(tagId, new ValueUpdate(valueObject));
-                return;
+            ReadBlock.Member member = new ReadBlock.Member(tagId, slot, tagStates.getCodec(slot));
+            retries.add(ReadBlock.of(Collections.singletonList(member)));
+        }
+        return retries;
+    }
+
+    /**
+     * Release the retried tags which could be read and publish their values. Tags still rejected stay quarantined
+     * with a longer backoff, tags failing for other reasons are retried with the same backoff.
+     *
+     * @param retries      single tag blocks of the retried tags
+     * @param pendingReads of the blocks
+     */
+    private synchronized void publishRetries(List<ReadBlock> retries, List<CompletableFuture<int[]>> pendingReads) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < retries.size(); i++) {
+            ReadBlock block = retries.get(i);
+            long tagId = block.getMembers().get(0).getTagId();
+            CompletableFuture<int[]> pendingRead = pendingReads.get(i);
+            Optional<int[]> words = modbusTCPService.awaitBlock(block, pendingRead);
+            if (words.isPresent()) {
+                quarantine.release(tagId);
+                quarantineChanged = true;
+                log.info("Data tag {} can be read again, adding it to the read blocks", tagId);
+                refreshReadBlock(block, words.get());
+            } else if (ReadFailure.of(pendingRead).isRejected()) {
+                quarantineTag(tagId, ReadFailure.causeOf(pendingRead).getMessage());
+            } else {
+                quarantine.postpone(tagId, now);
             }
-            Object prevValue = valueCache.get(tagId);
-            if (prevValue.equals(valueObject)) {
-                skipped++;
-                return;
+        }
+    }
+
+    /**
+     * Get the planned read blocks with at least one tag not read within the read cache ttl. The tags of the other
+     * blocks were read recently by the poll, their values are published already. With asynchronous polling copies of
+     * the blocks are returned, because a poll in flight may be reading into the buffers of the planned blocks.
+     *
+     * @param millis current time in milliseconds
+     * @return read blocks to read for a refresh of all data tags
+     */
+    private synchronized List<ReadBlock> getStaleBlocks(long millis) {
+        if (readCacheTtl <= 0 && !asyncPolling) {
+            return readBlocks;
+        }
+        List<ReadBlock> stale = new ArrayList<>();
+        for (ReadBlock block : readBlocks) {
+            if (readCacheTtl > 0
+                    && block.getMembers().stream().allMatch(member -> tagStates.isFresh(member.getSlot(), readCacheTtl, millis))) {
+                cached += block.getMembers().size();
+            } else {
+                stale.add(asyncPolling ? ReadBlock.of(block.getMembers()) : block);
             }
-            if (!performanceMode) {
-                double multiplier = hardwareAddress.getMultiplier();
-                double offset = hardwareAddress.getOffset();
-                double threshold = hardwareAddress.getThreshold();
-                if (multiplier == 0.0) multiplier = 1;
-                if (valueObject instanceof Float) {
-                    float valueFloat = (float) valueObject;
-                    float prevFloat = (float) prevValue;
-                    if (Math.abs(valueFloat - prevFloat) > threshold) {
-                        valueFloat *= multiplier;
-                        valueFloat += offset;
-                        equipmentMessageSender.update(tagId, new ValueUpdate(valueFloat));
+        }
+        return stale;
+    }
+
+    /**
+     * Publish the values of all tags of a block read with one request. The poll interval of adaptive tags is adapted
+     * to whether their value changed. The raw words of a tag are compared with its last read kept in the tag state
+     * store first, whichever block read it, so tags whose registers did not change are neither decoded nor checked
+     * against their deadband, unless a value of them was published since. The tag state store is locked for the whole
+     * block, so a command publishing the registers it read back waits at most for one block.
+     *
+     * @param block to refresh
+     * @param words raw register values read for the block
+     */
+    private void refreshReadBlock(ReadBlock block, int[] words) {
+        long millis = System.currentTimeMillis();
+        synchronized (tagStates) {
+            for (ReadBlock.Member member : block.getMembers()) {
+                try {
+                    int slot = member.getSlot();
+                    int offset = block.offsetOf(member);
+                    tagStates.markRead(slot, millis);
+                    boolean changed;
+                    if (member.getCodec().isArray()) {
+                        changed = updateArrayMember(member, words, offset, millis);
+                    } else if (tagStates.isRawUnchanged(slot, words, offset, member.getLength())) {
+                        skipped++;
+                        changed = false;
                     } else {
-                        threshold_skipped++;
-                        return;
+                        changed = updateMember(member, block.decode(member, words), millis);
+                        tagStates.rememberRawWords(slot, words, offset, member.getLength());
                     }
-                } else if (valueObject instanceof Boolean) {
-                    equipmentMessageSender.update(tagId, new ValueUpdate(valueObject));
-                } else if (valueObject instanceof Integer) {
-                    int valueInt = (int) valueObject;
-                    valueInt *= multiplier;
-                    valueInt += offset;
-                    equipmentMessageSender.update(tagId, new ValueUpdate(valueInt));
-                } else if (valueObject instanceof Byte) {
-                    byte valueByte = (byte) valueObject;
-                    valueByte *= multiplier;
-                    valueByte += offset;
-                    equipmentMessageSender.update(tagId, new ValueUpdate(valueByte));
-                } else if (valueObject instanceof Long) {
-                    long valueLong = (long) valueObject;
-                    valueLong *= multiplier;
-                    valueLong += offset;
-                    equipmentMessageSender.update(tagId, new ValueUpdate(valueLong));
-                } else if (valueObject instanceof Short) {
-                    short valueShort = (short) valueObject;
-                    valueShort *= multiplier;
-                    valueShort += offset;
-                    equipmentMessageSender.update(tagId, new ValueUpdate(valueShort));
-                } else if (valueObject instanceof Double) {
-                    double valueDouble = (double) valueObject;
-                    double prevDouble = (double) prevValue;
-                    if (Math.abs(valueDouble - prevDouble) > threshold) {
-                        valueDouble *= multiplier;
-                        valueDouble += offset;
-                        equipmentMessageSender.update(tagId, new ValueUpdate(valueDouble));
-                    } else {
-                        threshold_skipped++;
-                        return;
+                    if (isAdaptive(member.getCodec()) && pollRateAdapter.recordRead(member.getSlot(), changed)) {
+                        pollRateChanged = true;
                     }
-                } else {
-                    equipmentMessageSender.update(tagId, new ValueUpdate(valueObject));
+                } catch (Throwable e) {
+                    log.error("Could not refresh data tag {}", member.getTagId());
+                    log.error("Exception occurred", e);
                 }
+            }
+        }
+    }
+
+    /**
+     * Publish a value of a tag, if it differs from the last published value by more than its deadband. The value is
+     * compared as primitive and only boxed if it is published. The first value of a tag is published unscaled.
+     * Applies multiplier and offset unless the performance mode is enabled. Called with the tag state store locked.
+     *
+     * @param member of a read block
+     * @param bits   of the value read from the modbus device
+     * @param millis time the value was read
+     * @return true if the value was published
+     */
+    private boolean updateMember(ReadBlock.Member member, long bits, long millis) {
+        TagCodec codec = member.getCodec();
+        int slot = member.getSlot();
+        Object value;
+        if (!tagStates.hasValue(slot)) {
+            value = codec.box(bits);
+        } else if (tagStates.getLastBits(slot) == bits) {
+            skipped++;
+            return false;
+        } else if (!performanceMode) {
+            if (!codec.exceedsDeadband(bits, tagStates.getLastBits(slot))) {
+                threshold_skipped++;
+                return false;
+            }
+            value = codec.scale(bits);
+        } else {
+            value = codec.box(bits);
+        }
+        equipmentMessageSender.update(member.getTagId(), new ValueUpdate(value));
+        tagStates.publishBits(slot, bits, millis);
+        return true;
+    }
+
+    /**
+     * Publish the values of an array tag as one array, if any of its raw words changed since the last published
+     * value. The deadband does not apply to arrays. The raw words are kept instead of the value. Called with the tag
+     * state store locked.
+     *
+     * @param member of a read block with an array tag
+     * @param words  raw register or bit values read for the block
+     * @param offset of the tag inside the block
+     * @param millis time the value was read
+     * @return true if the value was published
+     */
+    private boolean updateArrayMember(ReadBlock.Member member, int[] words, int offset, long millis) {
+        if (tagStates.isUnchanged(member.getSlot(), words, offset)) {
+            skipped++;
+            return false;
+        }
+        equipmentMessageSender.update(member.getTagId(), new ValueUpdate(member.getCodec().decodeArray(words, offset, !performanceMode)));
+        tagStates.publishWords(member.getSlot(), Arrays.copyOfRange(words, offset, offset + member.getLength()), millis);
+        return true;
+    }
+
+    /**
+     * Publish the latest value of a single tag on request. While the tags are polled, a tag read within the read
+     * cache ttl is not read again, its value is published already.
+     *
+     * @param tagId the id of the data tag to refresh.
+     */
+    @Override
+    public void refreshDataTag(long tagId) {
+        if (log.isTraceEnabled()) {
+            log.trace("Refreshing data tag {}...", tagId);
+        }
+        try {
+            int slot;
+            if (!autoRefreshRunning) {
+                if (!resolveCodec(tagId).isPresent()) {
+                    skipped++;
+                    return;
+                }
+                slot = tagStates.slotOf(tagId);
             } else {
-                equipmentMessageSender.update(tagId, new ValueUpdate(valueObject));
+                slot = tagStates.slotOf(tagId);
+                if (slot < 0) {
+                    log.warn("Data tag {} is not polled, skipping refresh", tagId);
+                    skipped++;
+                    return;
+                }
             }
-            valueCache.put(tagId, valueObject);
+            if (autoRefreshRunning && tagStates.isFresh(slot, readCacheTtl, System.currentTimeMillis())) {
+                cached++;
+                return;
+            }
+            refreshTag(new ReadBlock.Member(tagId, slot, tagStates.getCodec(slot)));
             if (log.isTraceEnabled()) {
                 log.trace("Refreshing data tag {} success", tagId);
             }
@@ -230,25 +799,157 @@ public class DAQMessageHandler extends EquipmentMessageHandler implements IComma
         }
     }
 
+    /**
+     * Resolve the codec of a data tag from its hardware address and register it in the tag state store
+     *
+     * @param tagId of the data tag
+     * @return codec of the data tag or empty if it can not be read
+     */
+    private Optional<TagCodec> resolveCodec(long tagId) {
+        ISourceDataTag dataTag = equipmentConfiguration.getSourceDataTag(tagId);
+        Optional<TagCodec> codec = HardwareAddress.parseHardwareAddressFromXML(dataTag.getHardwareAddress().toConfigXML())
+                .flatMap(hardwareAddress -> TagCodec.of(hardwareAddress, dataTag.getDataType()));
+        if (codec.isPresent()) {
+            tagStates.register(tagId, codec.get());
+        } else {
+            log.warn("Data tag {} can not be read, skipping it", tagId);
+        }
+        return codec;
+    }
 
     /**
-     * Starts a new thread called refresh-thread, which automatically calls the method refreshAllDataTags() in a specific
-     * interval. The method scheduleAtFixedRate() is the way to go, as its not scheduling the next task until the previous
-     * is done.
+     * Read a single tag with one request and publish it, if it changed since the last published value. Without auto
+     * refresh it is published in any case. A refresh of a tag whose registers are being read already joins that read.
+     *
+     * @param member handle of the data tag
+     */
+    private void refreshTag(ReadBlock.Member member) {
+        ReadBlock block = ReadBlock.of(Collections.singletonList(member));
+        Optional<int[]> words = modbusTCPService.readBlock(block);
+        if (!words.isPresent()) {
+            log.warn("Failed to read value from tagId {}, skipping update", member.getTagId());
+            skipped++;
+            return;
+        }
+        if (autoRefreshRunning) {
+            polled++;
+            refreshReadBlock(block, words.get());
+            return;
+        }
+        TagCodec codec = member.getCodec();
+        long millis = System.currentTimeMillis();
+        synchronized (tagStates) {
+            if (codec.isArray()) {
+                equipmentMessageSender.update(member.getTagId(), new ValueUpdate(codec.decodeArray(words.get(), 0, !performanceMode)));
+                tagStates.publishWords(member.getSlot(), Arrays.copyOf(words.get(), member.getLength()), millis);
+            } else {
+                long bits = block.decode(member, words.get());
+                equipmentMessageSender.update(member.getTagId(), new ValueUpdate(codec.box(bits)));
+                tagStates.publishBits(member.getSlot(), bits, millis);
+            }
+            tagStates.markRead(member.getSlot(), millis);
+        }
+    }
+
+    /**
+     * Starts a new thread called refresh-thread, which automatically advances the poll wheel every tick. The tick is
+     * the greatest common divisor of the poll intervals of all tags, including all intervals adaptive tags may be
+     * polled with, and the refresh interval of the equipment. The
+     * method scheduleAtFixedRate() is the way to go, as its not scheduling the next task until the previous is done.
+     * The executions delayed by a long poll run back to back, the poll scheduler merges their ticks into one poll.
+     * Equipments using the nio transport are refreshed by the shared refresh threads instead.
      */
     private void startAutoRefresh() {
         log.debug("Enabling auto refresh...");
-        int delay = EquipmentAddress.parseEquipmentAddress(
-                equipmentConfiguration.getAddress()).orElseThrow(RuntimeException::new).getRefreshInterval();
-        if (delay == 0) {
-            delay = 10000;
-        }
-        ThreadFactory refreshThreadFactory =
-                new ThreadFactoryBuilder().setNameFormat(String.valueOf(equipmentConfiguration.getName())).build();
-        Executors.newSingleThreadScheduledExecutor(refreshThreadFactory).scheduleAtFixedRate(this::refreshAllDataTags, delay, delay, TimeUnit.MILLISECONDS);
+        TreeSet<Long> intervals = new TreeSet<>();
+        intervals.add(getRefreshInterval());
+        int maxPriority = 0;
+        for (int slot = 0; slot < tagStates.size(); slot++) {
+            intervals.add(getPollInterval(tagStates.getCodec(slot)));
+            maxPriority = Math.max(maxPriority, tagStates.getCodec(slot).getPriority());
+        }
+        if (pollRateAdapter.isEnabled()) {
+            intervals.addAll(pollRateAdapter.getIntervals());
+        }
+        long tick = 0;
+        for (long interval : intervals) {
+            tick = LongMath.gcd(tick, interval);
+        }
+        pollScheduler = new PollScheduler(Math.max(MIN_POLL_TICK, tick), maxPriority);
+        intervals.forEach(pollScheduler::schedule);
+        if (intervals.size() > 1) {
+            log.info("Polling data tags every {}ms with a tick of {}ms", intervals, pollScheduler.getTickMillis());
+        }
+        if (ModbusTCPService.isNioTransport(equipmentAddress)) {
+            refreshExecutor = SHARED_REFRESH_EXECUTOR;
+            asyncPolling = true;
+        } else {
+            ThreadFactory refreshThreadFactory =
+                    new ThreadFactoryBuilder().setNameFormat(String.valueOf(equipmentConfiguration.getName())).build();
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(refreshThreadFactory);
+        }
+        pollScheduler.start(System.currentTimeMillis());
+        autoRefresh = refreshExecutor.scheduleAtFixedRate(this::pollDueTags, pollScheduler.getTickMillis(), pollScheduler.getTickMillis(), TimeUnit.MILLISECONDS);
         autoRefreshRunning = true;
     }
 
+    /**
+     * Cancel the task advancing the poll wheel and shut down the refresh thread of the equipment. The shared refresh
+     * threads of the nio transport keep running for the other equipments.
+     */
+    private void stopAutoRefresh() {
+        if (autoRefresh != null) {
+            autoRefresh.cancel(false);
+            autoRefresh = null;
+        }
+        if (refreshExecutor != null && refreshExecutor != SHARED_REFRESH_EXECUTOR) {
+            refreshExecutor.shutdownNow();
+        }
+        refreshExecutor = null;
+        autoRefreshRunning = false;
+    }
+
+    /**
+     * Get the refresh interval of the equipment, which is the poll interval of all tags without their own
+     *
+     * @return refresh interval in milliseconds
+     */
+    private long getRefreshInterval() {
+        int delay = equipmentAddress.getRefreshInterval();
+        return delay == 0 ? 10000 : delay;
+    }
+
+    /**
+     * Get the interval a tag is polled with
+     *
+     * @param codec of the tag
+     * @return poll interval of the tag or the refresh interval of the equipment in milliseconds
+     */
+    private long getPollInterval(TagCodec codec) {
+        return codec.getPollInterval() > 0 ? codec.getPollInterval() : getRefreshInterval();
+    }
+
+    /**
+     * Get the interval a tag is currently polled with
+     *
+     * @param member of the tag
+     * @return adapted poll interval of an adaptive tag, otherwise the poll interval of its codec in milliseconds
+     */
+    private long getPollInterval(ReadBlock.Member member) {
+        return isAdaptive(member.getCodec()) ? pollRateAdapter.getInterval(member.getSlot()) : getPollInterval(member.getCodec());
+    }
+
+    /**
+     * Check if the poll interval of a tag is adapted to how often it changes. This is the case for all tags without
+     * their own poll interval if adaptive polling is configured for the equipment.
+     *
+     * @param codec of the tag
+     * @return true if the tag is polled adaptively
+     */
+    private boolean isAdaptive(TagCodec codec) {
+        return pollRateAdapter != null && pollRateAdapter.isEnabled() && codec.getPollInterval() <= 0;
+    }
+
     /**
      * Checks if performance mode environment variable,
      * if its true, the performance mode is enabled, if not it stays disabled
@@ -275,15 +976,148 @@ public class DAQMessageHandler extends EquipmentMessageHandler implements IComma
                     sourceCommandTagValue.getName(), sourceCommandTagValue.getEquipmentId(),
                     sourceCommandTagValue.getDataType(), sourceCommandTagValue.getValue());
         }
-        log.debug("Hardware address {}", equipmentConfiguration.getSourceCommandTag(sourceCommandTagValue.getId()).getHardwareAddress().toConfigXML());
-        Optional<HardwareAddress> optionalHardwareAddress = HardwareAddress.parseHardwareAddressFromXML(
-                equipmentConfiguration.getSourceCommandTag(sourceCommandTagValue.getId()).getHardwareAddress().toConfigXML());
-        if (optionalHardwareAddress.isPresent()) {
-            modbusTCPService.putValue(optionalHardwareAddress.get(), sourceCommandTagValue.getValue(), sourceCommandTagValue.getDataType());
-            return "Success";
-        } else {
+        Optional<TagCodec> codec = getCommandCodec(sourceCommandTagValue);
+        if (!codec.isPresent()) {
             return "Could not parse hardware address. Failed.";
         }
+        try {
+            Optional<ReadBlock> readback = getReadbackBlock(sourceCommandTagValue.getId());
+            if (readback.isPresent()) {
+                int[] words = modbusTCPService.putValue(codec.get(), sourceCommandTagValue.getValue(), readback.get()).get();
+                if (words != null) {
+                    refreshReadBlock(readback.get(), words);
+                }
+            } else {
+                modbusTCPService.putValue(codec.get(), sourceCommandTagValue.getValue()).get();
+            }
+            resetPollRates(sourceCommandTagValue.getId(), codec.get());
+            return "Success";
+        } catch (ExecutionException e) {
+            log.error("Could not write the value {} of command {}", sourceCommandTagValue.getValue(), sourceCommandTagValue.getName(), e.getCause());
+            return "Could not write value: " + e.getCause().getMessage() + ". Failed.";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted while writing value. Failed.";
+        }
+    }
+
+    /**
+     * Get the codec of a command tag, it is resolved on the first execution of the command together with the
+     * holding registers the command reads back. A readback range larger than a single read request is shortened to
+     * the first registers a request can read.
+     *
+     * @param sourceCommandTagValue of the command
+     * @return codec of the command tag or empty if its hardware address is not supported
+     */
+    private Optional<TagCodec> getCommandCodec(SourceCommandTagValue sourceCommandTagValue) {
+        synchronized (commandCodecCache) {
+            TagCodec codec = commandCodecCache.get(sourceCommandTagValue.getId());
+            if (codec == null) {
+                String hardwareAddressXML = equipmentConfiguration.getSourceCommandTag(sourceCommandTagValue.getId()).getHardwareAddress().toConfigXML();
+                log.debug("Hardware address {}", hardwareAddressXML);
+                Optional<HardwareAddress> hardwareAddress = HardwareAddress.parseHardwareAddressFromXML(hardwareAddressXML);
+                Optional<TagCodec> resolved = hardwareAddress
+                        .flatMap(address -> TagCodec.of(address, sourceCommandTagValue.getDataType()));
+                if (!resolved.isPresent()) {
+                    return Optional.empty();
+                }
+                codec = resolved.get();
+                commandCodecCache.put(sourceCommandTagValue.getId(), codec);
+                int readbackCount = hardwareAddress.get().getReadbackCount();
+                if (readbackCount > RegisterType.HOLDING.getMaxPerRequest()) {
+                    log.warn("Readback of {} registers of command {} does not fit into a single read request of at most {} {} registers, reading back the first {}",
+                            readbackCount, sourceCommandTagValue.getName(), RegisterType.HOLDING.getMaxPerRequest(),
+                            RegisterType.HOLDING, RegisterType.HOLDING.getMaxPerRequest());
+                    readbackCount = RegisterType.HOLDING.getMaxPerRequest();
+                }
+                if (readbackCount > 0) {
+                    commandReadbackCache.put(sourceCommandTagValue.getId(), new ReadBlock(RegisterType.HOLDING,
+                            hardwareAddress.get().getReadbackAddress(), readbackCount));
+                }
+            }
+            return Optional.of(codec);
+        }
+    }
+
+    /**
+     * Get the block a command reads back with its write. It contains the data tags currently read from holding
+     * registers inside the readback range of the command, so their values are published right after the write. The
+     * range is shortened to the registers per request the device accepts.
+     *
+     * @param commandTagId of the command
+     * @return block to read back or empty if the command has no readback range or no data tag lies inside it
+     */
+    private Optional<ReadBlock> getReadbackBlock(long commandTagId) {
+        ReadBlock range;
+        synchronized (commandCodecCache) {
+            range = commandReadbackCache.get(commandTagId);
+        }
+        if (range == null) {
+            return Optional.empty();
+        }
+        int count = Math.min(range.getCount(), modbusTCPService.getDeviceProfile().getMaxPerRequest(RegisterType.HOLDING));
+        ReadBlock readback = new ReadBlock(RegisterType.HOLDING, range.getStartAddress(), count);
+        for (ReadBlock.Member member : blockMembers) {
+            TagCodec codec = member.getCodec();
+            if (codec.getRegisterType() == RegisterType.HOLDING && codec.getStartAddress() >= readback.getStartAddress()
+                    && codec.getStartAddress() + member.getLength() <= readback.getEndAddress()) {
+                readback.add(member);
+            }
+        }
+        if (readback.getMembers().isEmpty()) {
+            log.debug("No data tag inside the readback range of command {}, writing without readback", commandTagId);
+            return Optional.empty();
+        }
+        return Optional.of(readback);
+    }
 
+    /**
+     * Poll the adaptive tags a command affects at the minimum interval again, so the effect of the command is
+     * published quickly. These are the tags overlapping the written registers or the readback range of the command.
+     * The effect of a command without readback range is not known, it resets all adaptive tags of the equipment.
+     *
+     * @param commandTagId of the command
+     * @param codec        of the command tag
+     */
+    private void resetPollRates(long commandTagId, TagCodec codec) {
+        if (!pollRateAdapter.isEnabled()) {
+            return;
+        }
+        ReadBlock range;
+        synchronized (commandCodecCache) {
+            range = commandReadbackCache.get(commandTagId);
+        }
+        int reset = 0;
+        for (ReadBlock.Member member : blockMembers) {
+            if (!isAdaptive(member.getCodec())) {
+                continue;
+            }
+            if (range != null && !overlaps(member, codec.getRegisterType(), codec.getStartAddress(), codec.getWordCount())
+                    && !overlaps(member, RegisterType.HOLDING, range.getStartAddress(), range.getCount())) {
+                continue;
+            }
+            if (pollRateAdapter.reset(member.getSlot())) {
+                reset++;
+            }
+        }
+        if (reset > 0) {
+            log.debug("Command {} reset the poll interval of {} data tag(s)", commandTagId, reset);
+            pollRateChanged = true;
+        }
+    }
+
+    /**
+     * Check if a tag occupies any register of a range
+     *
+     * @param member       of the tag
+     * @param registerType of the range
+     * @param startAddress of the range
+     * @param count        of registers or bits of the range
+     * @return true if the tag and the range share a register
+     */
+    private static boolean overlaps(ReadBlock.Member member, RegisterType registerType, int startAddress, int count) {
+        TagCodec codec = member.getCodec();
+        return codec.getRegisterType() == registerType && codec.getStartAddress() < startAddress + count
+                && startAddress < codec.getStartAddress() + member.getLength();
     }
 }
@@ -0,0 +1,174 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+import de.tub.sense.daq.config.xml.HardwareAddress;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of isolating the tags of a rejected block and of what the device profile learns from it
+ *
+ * @created 18/10/2026 - 17:30
+ * @project DAQConfigLoader
+ */
+
+public class BlockBisectionTest {
+
+    private final FakeModbusSocket transport = new FakeModbusSocket();
+    private final ModbusTCPService service = new ModbusTCPService(transport);
+
+    /**
+     * Block of single register tags, the tag id of each tag is its address
+     */
+    private static ReadBlock block(int... addresses) {
+        List<ReadBlock.Member> members = new ArrayList<>();
+        for (int i = 0; i < addresses.length; i++) {
+            TagCodec codec = TagCodec.of(new HardwareAddress(addresses[i], 1, "holding", 0, 1, 0, 0), "java.lang.Short").get();
+            members.add(new ReadBlock.Member(addresses[i], i, codec));
+        }
+        return ReadBlock.of(members);
+    }
+
+    private static boolean covers(ModbusRequest request, int address) {
+        ReadMultipleRegistersRequest read = (ReadMultipleRegistersRequest) request;
+        return read.getReference() <= address && address < read.getReference() + read.getWordCount();
+    }
+
+    private BlockBisection bisect(ReadBlock block) {
+        return BlockBisection.isolate(service, block, service.readBlockAsync(block));
+    }
+
+    private static List<Integer> readAddresses(BlockBisection bisection) {
+        List<Integer> addresses = new ArrayList<>();
+        for (Map.Entry<ReadBlock, int[]> entry : bisection.getRead().entrySet()) {
+            assertArrayEquals(expectedWords(entry.getKey()), entry.getValue());
+            for (ReadBlock.Member member : entry.getKey().getMembers()) {
+                addresses.add((int) member.getTagId());
+            }
+        }
+        addresses.sort(null);
+        return addresses;
+    }
+
+    private static int[] expectedWords(ReadBlock block) {
+        int[] words = new int[block.getCount()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = block.getStartAddress() + i;
+        }
+        return words;
+    }
+
+    @Test
+    public void rejectedTagIsQuarantinedAndTheOthersAreRead() {
+        transport.setResponder(request -> {
+            if (covers(request, 2)) {
+                throw new ModbusSlaveException(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
+            }
+            return FakeModbusSocket.addressesAsValues(request);
+        });
+        BlockBisection bisection = bisect(block(0, 1, 2, 3));
+        assertEquals(1, bisection.getRejected().size());
+        assertTrue(bisection.getRejected().containsKey(2L));
+        assertEquals(Arrays.asList(0, 1, 3), readAddresses(bisection));
+        assertTrue(bisection.getFailed().isEmpty());
+        assertTrue(service.getDeviceProfile().isSafeGap(RegisterType.HOLDING, 0, 4));
+        assertFalse(service.getDeviceProfile().takeChanged());
+    }
+
+    @Test
+    public void gapRejectedBetweenReadableHalvesIsMarkedUnsafe() {
+        transport.setResponder(request -> {
+            if (covers(request, 3)) {
+                throw new ModbusSlaveException(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
+            }
+            return FakeModbusSocket.addressesAsValues(request);
+        });
+        BlockBisection bisection = bisect(block(0, 1, 5, 6));
+        assertTrue(bisection.getRejected().isEmpty());
+        assertEquals(Arrays.asList(0, 1, 5, 6), readAddresses(bisection));
+        assertFalse(service.getDeviceProfile().isSafeGap(RegisterType.HOLDING, 2, 5));
+        assertTrue(service.getDeviceProfile().takeChanged());
+    }
+
+    @Test
+    public void tooLargeBlockLowersTheRegistersPerRequestOnce() {
+        transport.setResponder(request -> {
+            if (((ReadMultipleRegistersRequest) request).getWordCount() > 2) {
+                throw new ModbusSlaveException(Modbus.ILLEGAL_VALUE_EXCEPTION);
+            }
+            return FakeModbusSocket.addressesAsValues(request);
+        });
+        BlockBisection bisection = bisect(block(0, 1, 2, 3, 4, 5, 6, 7));
+        assertTrue(bisection.getRejected().isEmpty());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7), readAddresses(bisection));
+        assertEquals(2, service.getDeviceProfile().getMaxPerRequest(RegisterType.HOLDING));
+    }
+
+    @Test
+    public void illegalValueOfASingleTagDoesNotShrinkTheRegistersPerRequest() {
+        transport.setResponder(request -> {
+            if (covers(request, 5)) {
+                throw new ModbusSlaveException(Modbus.ILLEGAL_VALUE_EXCEPTION);
+            }
+            return FakeModbusSocket.addressesAsValues(request);
+        });
+        BlockBisection bisection = bisect(block(0, 1, 2, 3, 4, 5, 6, 7));
+        assertEquals(1, bisection.getRejected().size());
+        assertTrue(bisection.getRejected().containsKey(5L));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 6, 7), readAddresses(bisection));
+        assertEquals(RegisterType.HOLDING.getMaxPerRequest(), service.getDeviceProfile().getMaxPerRequest(RegisterType.HOLDING));
+        assertFalse(service.getDeviceProfile().takeChanged());
+    }
+
+    @Test
+    public void halfWithoutAnswerIsSkipped() {
+        transport.setResponder(request -> {
+            if (covers(request, 0) && covers(request, 3)) {
+                throw new ModbusSlaveException(Modbus.ILLEGAL_ADDRESS_EXCEPTION);
+            }
+            if (covers(request, 3)) {
+                throw new ModbusIOException("Timeout");
+            }
+            return FakeModbusSocket.addressesAsValues(request);
+        });
+        BlockBisection bisection = bisect(block(0, 1, 2, 3));
+        assertTrue(bisection.getRejected().isEmpty());
+        assertEquals(Arrays.asList(0, 1), readAddresses(bisection));
+        assertEquals(1, bisection.getFailed().size());
+        assertEquals(2, bisection.getFailed().get(0).getStartAddress());
+        assertTrue(service.getDeviceProfile().isSafeGap(RegisterType.HOLDING, 0, 4));
+    }
+
+    @Test
+    public void halvesReadLaterAreChained() {
+        ReadBlock block = block(0, 1, 2, 3);
+        CompletableFuture<int[]> pendingRead = service.readBlockAsync(block);
+        transport.getPending(0).completeExceptionally(new ModbusSlaveException(Modbus.ILLEGAL_ADDRESS_EXCEPTION));
+        CompletableFuture<BlockBisection> bisection =
+                BlockBisection.isolateAsync(service, block, pendingRead, Runnable::run);
+        assertEquals(3, transport.getRequests().size());
+        transport.getPending(1).complete(FakeModbusSocket.addressesAsValues(transport.getRequests().get(1)));
+        assertFalse(bisection.isDone());
+        transport.getPending(2).completeExceptionally(new ModbusSlaveException(Modbus.ILLEGAL_ADDRESS_EXCEPTION));
+        assertEquals(5, transport.getRequests().size());
+        transport.getPending(3).complete(FakeModbusSocket.addressesAsValues(transport.getRequests().get(3)));
+        transport.getPending(4).completeExceptionally(new ModbusSlaveException(Modbus.ILLEGAL_ADDRESS_EXCEPTION));
+        assertTrue(bisection.isDone());
+        assertTrue(bisection.join().getRejected().containsKey(3L));
+        assertEquals(Arrays.asList(0, 1, 2), readAddresses(bisection.join()));
+    }
+}
@@ -0,0 +1,79 @@
+package de.tub.sense.daq.modbus;
+
+import de.tub.sense.daq.config.xml.HardwareAddress;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the limits and costs learned about the read requests of a device
+ *
+ * @created 18/10/2026 - 16:50
+ * @project DAQConfigLoader
+ */
+
+public class DeviceProfileTest {
+
+    private static ReadBlock block(int startAddress, int tags) {
+        List<ReadBlock.Member> members = new ArrayList<>();
+        for (int i = 0; i < tags; i++) {
+            TagCodec codec = TagCodec.of(new HardwareAddress(startAddress + i, 1, "holding", 0, 1, 0, 0), "java.lang.Short").get();
+            members.add(new ReadBlock.Member(i + 1, i, codec));
+        }
+        return ReadBlock.of(members);
+    }
+
+    @Test
+    public void startsWithTheLimitsOfTheSpecification() {
+        DeviceProfile profile = new DeviceProfile();
+        assertEquals(RegisterType.HOLDING.getMaxPerRequest(), profile.getMaxPerRequest(RegisterType.HOLDING));
+        assertFalse(profile.takeChanged());
+    }
+
+    @Test
+    public void rejectedCountHalvesTheLimitBelowTheBlock() {
+        DeviceProfile profile = new DeviceProfile();
+        profile.rejectedCount(block(0, 100));
+        assertEquals(50, profile.getMaxPerRequest(RegisterType.HOLDING));
+        assertTrue(profile.getMaxGap(RegisterType.HOLDING) <= 50);
+        assertTrue(profile.takeChanged());
+        assertFalse(profile.takeChanged());
+    }
+
+    @Test
+    public void rejectedCountAboveTheLimitIsIgnored() {
+        DeviceProfile profile = new DeviceProfile();
+        profile.rejectedCount(block(0, 40));
+        profile.takeChanged();
+        profile.rejectedCount(block(0, 60));
+        assertEquals(20, profile.getMaxPerRequest(RegisterType.HOLDING));
+        assertFalse(profile.takeChanged());
+    }
+
+    @Test
+    public void singleRegisterDoesNotChangeTheLimit() {
+        DeviceProfile profile = new DeviceProfile();
+        profile.rejectedCount(block(7, 1));
+        assertEquals(RegisterType.HOLDING.getMaxPerRequest(), profile.getMaxPerRequest(RegisterType.HOLDING));
+        assertFalse(profile.takeChanged());
+    }
+
+    @Test
+    public void rejectedGapIsNeverMergedAgain() {
+        DeviceProfile profile = new DeviceProfile();
+        profile.rejectedGap(RegisterType.HOLDING, 10, 14);
+        assertTrue(profile.takeChanged());
+        assertFalse(profile.isSafeGap(RegisterType.HOLDING, 8, 11));
+        assertFalse(profile.isSafeGap(RegisterType.HOLDING, 13, 20));
+        assertTrue(profile.isSafeGap(RegisterType.HOLDING, 14, 20));
+        assertTrue(profile.isSafeGap(RegisterType.HOLDING, 0, 10));
+        assertTrue(profile.isSafeGap(RegisterType.INPUT, 10, 14));
+        profile.rejectedGap(RegisterType.HOLDING, 11, 13);
+        assertFalse(profile.takeChanged());
+    }
+}
@@ -0,0 +1,117 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.msg.ModbusRequest;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersResponse;
+import com.ghgande.j2mod.modbus.procimg.Register;
+import com.ghgande.j2mod.modbus.procimg.SimpleRegister;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport for the tests which records the requests sent. Requests are answered by the responder if one is set,
+ * otherwise they stay pending until the test completes them.
+ *
+ * @created 18/10/2026 - 14:20
+ * @project DAQConfigLoader
+ */
+
+class FakeModbusSocket extends ModbusFunctionFactory {
+
+    /**
+     * Answers a request or throws the exception the request fails with
+     */
+    @FunctionalInterface
+    interface Responder {
+        ModbusResponse answer(ModbusRequest request) throws Exception;
+    }
+
+    private final List<ModbusRequest> requests = new ArrayList<>();
+    private final List<CompletableFuture<ModbusResponse>> pending = new ArrayList<>();
+    private volatile Responder responder;
+    private volatile boolean connected = true;
+    private volatile int timeout;
+
+    void setResponder(Responder responder) {
+        this.responder = responder;
+    }
+
+    synchronized List<ModbusRequest> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    synchronized CompletableFuture<ModbusResponse> getPending(int index) {
+        return pending.get(index);
+    }
+
+    int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Answer a holding register read with the register addresses as values
+     *
+     * @param request read holding registers request
+     * @return response with one register per address
+     */
+    static ModbusResponse addressesAsValues(ModbusRequest request) {
+        ReadMultipleRegistersRequest read = (ReadMultipleRegistersRequest) request;
+        Register[] registers = new Register[read.getWordCount()];
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = new SimpleRegister(read.getReference() + i);
+        }
+        return new ReadMultipleRegistersResponse(registers);
+    }
+
+    @Override
+    protected ModbusResponse execute(ModbusRequest request) throws Exception {
+        return await(submit(request));
+    }
+
+    @Override
+    public CompletableFuture<ModbusResponse> submit(ModbusRequest request) {
+        CompletableFuture<ModbusResponse> future = new CompletableFuture<>();
+        synchronized (this) {
+            requests.add(request);
+            pending.add(future);
+        }
+        Responder current = responder;
+        if (current != null) {
+            try {
+                future.complete(current.answer(request));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    @Override
+    public boolean isAsynchronous() {
+        return true;
+    }
+
+    @Override
+    public boolean connect() {
+        connected = true;
+        return true;
+    }
+
+    @Override
+    public void disconnect() {
+        connected = false;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,81 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import de.tub.sense.daq.config.xml.HardwareAddress;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the block reads of the modbus tcp service
+ *
+ * @created 18/10/2026 - 14:40
+ * @project DAQConfigLoader
+ */
+
+public class ModbusTCPServiceTest {
+
+    private static ReadBlock block(int startAddress, int count) {
+        TagCodec codec = TagCodec.of(new HardwareAddress(startAddress, count, "holding", 0, 1, 0, 0), "java.lang.Short").get();
+        return ReadBlock.of(Collections.singletonList(new ReadBlock.Member(1, 0, codec)));
+    }
+
+    @Test
+    public void concurrentReadsOfTheSameBlockShareOneRequest() throws Exception {
+        FakeModbusSocket socket = new FakeModbusSocket();
+        ModbusTCPService service = new ModbusTCPService(socket);
+        List<CompletableFuture<int[]>> reads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            reads.add(service.readBlockAsync(block(10, 1)));
+        }
+        assertEquals(1, socket.getRequests().size());
+        socket.getPending(0).complete(FakeModbusSocket.addressesAsValues(socket.getRequests().get(0)));
+        for (CompletableFuture<int[]> read : reads) {
+            assertArrayEquals(new int[]{10}, read.get());
+        }
+        assertNotSame(reads.get(0).get(), reads.get(1).get());
+        assertEquals(4, service.takeCoalescedReads());
+    }
+
+    @Test
+    public void readsOfOtherRangesAreNotShared() {
+        FakeModbusSocket socket = new FakeModbusSocket();
+        ModbusTCPService service = new ModbusTCPService(socket);
+        service.readBlockAsync(block(10, 1));
+        service.readBlockAsync(block(11, 1));
+        service.readBlockAsync(block(10, 2));
+        assertEquals(3, socket.getRequests().size());
+        assertEquals(0, service.takeCoalescedReads());
+    }
+
+    @Test
+    public void completedReadIsNotSharedAnymore() throws Exception {
+        FakeModbusSocket socket = new FakeModbusSocket();
+        socket.setResponder(FakeModbusSocket::addressesAsValues);
+        ModbusTCPService service = new ModbusTCPService(socket);
+        assertArrayEquals(new int[]{10}, service.readBlockAsync(block(10, 1)).get());
+        assertArrayEquals(new int[]{10}, service.readBlockAsync(block(10, 1)).get());
+        assertEquals(2, socket.getRequests().size());
+    }
+
+    @Test
+    public void failedReadFailsAllSharingItAndIsNotShared() {
+        FakeModbusSocket socket = new FakeModbusSocket();
+        ModbusTCPService service = new ModbusTCPService(socket);
+        CompletableFuture<int[]> first = service.readBlockAsync(block(10, 1));
+        CompletableFuture<int[]> second = service.readBlockAsync(block(10, 1));
+        socket.getPending(0).completeExceptionally(new ModbusIOException("Connection closed"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        service.readBlockAsync(block(10, 1));
+        assertEquals(2, socket.getRequests().size());
+    }
+}
@@ -0,0 +1,96 @@
+package de.tub.sense.daq.modbus;
+
+import com.ghgande.j2mod.modbus.Modbus;
+import com.ghgande.j2mod.modbus.ModbusIOException;
+import com.ghgande.j2mod.modbus.ModbusSlaveException;
+import com.ghgande.j2mod.modbus.msg.ModbusResponse;
+import com.ghgande.j2mod.modbus.msg.ReadMultipleRegistersRequest;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the retries, the fail fast and the adaptive timeout of the scheduling in front of a transport
+ *
+ * @created 18/10/2026 - 16:20
+ * @project DAQConfigLoader
+ */
+
+public class PrioritizedModbusSocketTest {
+
+    private final FakeModbusSocket transport = new FakeModbusSocket();
+    private final PrioritizedModbusSocket socket = new PrioritizedModbusSocket(transport, 1000, 3, new DeviceProfile());
+
+    private CompletableFuture<ModbusResponse> read(PrioritizedModbusSocket.Priority priority) {
+        return socket.lane(priority).submit(new ReadMultipleRegistersRequest(0, 2));
+    }
+
+    @Test
+    public void appliesTheConfiguredTimeoutToTheTransport() {
+        assertEquals(1000, transport.getTimeout());
+        assertEquals(1000, socket.getRttEstimator().getTimeout());
+    }
+
+    @Test
+    public void pollFailsFastAfterARequestGotNoAnswer() {
+        transport.setResponder(request -> {
+            throw new ModbusIOException("Timeout");
+        });
+        assertTrue(read(PrioritizedModbusSocket.Priority.POLL).isCompletedExceptionally());
+        assertTrue(socket.isFailingFast());
+        assertEquals(1, transport.getRequests().size());
+
+        assertTrue(read(PrioritizedModbusSocket.Priority.POLL).isCompletedExceptionally());
+        assertEquals(1, transport.getRequests().size());
+    }
+
+    @Test
+    public void commandsAreSentWhilePollFailsFast() {
+        transport.setResponder(request -> {
+            throw new ModbusIOException("Timeout");
+        });
+        read(PrioritizedModbusSocket.Priority.POLL);
+        transport.setResponder(FakeModbusSocket::addressesAsValues);
+        CompletableFuture<ModbusResponse> command = read(PrioritizedModbusSocket.Priority.COMMAND);
+        assertTrue(command.isDone());
+        assertFalse(command.isCompletedExceptionally());
+        assertFalse(socket.isFailingFast());
+        assertFalse(read(PrioritizedModbusSocket.Priority.POLL).isCompletedExceptionally());
+    }
+
+    @Test
+    public void exceptionOfTheDeviceIsAnAnswer() {
+        transport.setResponder(request -> {
+            throw new ModbusSlaveException(Modbus.ILLEGAL_VALUE_EXCEPTION);
+        });
+        assertTrue(read(PrioritizedModbusSocket.Priority.POLL).isCompletedExceptionally());
+        assertFalse(socket.isFailingFast());
+        assertTrue(read(PrioritizedModbusSocket.Priority.POLL).isCompletedExceptionally());
+        assertEquals(2, transport.getRequests().size());
+    }
+
+    @Test
+    public void timeoutAdaptsOnlyFromAFullWindowAndRetriesWithinTheConfiguredTimeout() throws Exception {
+        transport.setResponder(FakeModbusSocket::addressesAsValues);
+        for (int i = 0; i < RttEstimator.WINDOW - 1; i++) {
+            read(PrioritizedModbusSocket.Priority.POLL).get(1, TimeUnit.SECONDS);
+        }
+        assertEquals(1000, transport.getTimeout());
+        read(PrioritizedModbusSocket.Priority.POLL).get(1, TimeUnit.SECONDS);
+        assertEquals(500, transport.getTimeout());
+
+        int sent = transport.getRequests().size();
+        transport.setResponder(request -> {
+            throw new ModbusIOException("Timeout");
+        });
+        read(PrioritizedModbusSocket.Priority.POLL).handle((response, throwable) -> null).get(1, TimeUnit.SECONDS);
+        assertEquals(sent + 2, transport.getRequests().size());
+        assertEquals(1000, transport.getTimeout());
+        assertTrue(socket.isFailingFast());
+    }
+}
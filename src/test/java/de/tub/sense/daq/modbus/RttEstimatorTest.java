@@ -0,0 +1,86 @@
+package de.tub.sense.daq.modbus;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the timeout and the retries derived from the round trip times
+ *
+ * @created 18/10/2026 - 16:05
+ * @project DAQConfigLoader
+ */
+
+public class RttEstimatorTest {
+
+    private static void record(RttEstimator estimator, int count, long millis) {
+        for (int i = 0; i < count; i++) {
+            estimator.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+
+    @Test
+    public void startsAtTheConfiguredTimeoutWithoutRetries() {
+        RttEstimator estimator = new RttEstimator(3000, 3);
+        assertEquals(3000, estimator.getTimeout());
+        assertEquals(0, estimator.getRetries());
+    }
+
+    @Test
+    public void keepsTheConfiguredTimeoutUntilTheWindowIsFull() {
+        RttEstimator estimator = new RttEstimator(3000, 3);
+        record(estimator, RttEstimator.WINDOW - 1, 5);
+        assertEquals(3000, estimator.getTimeout());
+        assertEquals(0, estimator.getRetries());
+        record(estimator, 1, 5);
+        assertEquals(1500, estimator.getTimeout());
+        assertEquals(1, estimator.getRetries());
+    }
+
+    @Test
+    public void lowersTheTimeoutByAtMostHalfUpToTheMinimum() {
+        RttEstimator estimator = new RttEstimator(3000, 3);
+        record(estimator, RttEstimator.WINDOW, 5);
+        record(estimator, 1, 5);
+        assertEquals(750, estimator.getTimeout());
+        record(estimator, 10, 5);
+        assertEquals(RttEstimator.MIN_TIMEOUT, estimator.getTimeout());
+        assertEquals(3, estimator.getRetries());
+    }
+
+    @Test
+    public void raisesTheTimeoutWithoutAFullWindow() {
+        RttEstimator estimator = new RttEstimator(3000, 3);
+        record(estimator, RttEstimator.WINDOW + 10, 5);
+        assertEquals(RttEstimator.MIN_TIMEOUT, estimator.getTimeout());
+        estimator.backoff(RttEstimator.MIN_TIMEOUT);
+        assertEquals(2 * RttEstimator.MIN_TIMEOUT, estimator.getTimeout());
+        record(estimator, RttEstimator.MIN_SAMPLES, 250);
+        assertEquals(1000, estimator.getTimeout());
+        assertEquals(2, estimator.getRetries());
+    }
+
+    @Test
+    public void requestsTimingOutTogetherBackOffOnce() {
+        RttEstimator estimator = new RttEstimator(3000, 3);
+        record(estimator, RttEstimator.WINDOW + 10, 5);
+        int timeout = estimator.getTimeout();
+        estimator.backoff(timeout);
+        estimator.backoff(timeout);
+        estimator.backoff(timeout);
+        assertEquals(2 * timeout, estimator.getTimeout());
+    }
+
+    @Test
+    public void backoffIsBoundedByTheConfiguredTimeout() {
+        RttEstimator estimator = new RttEstimator(3000, 3);
+        record(estimator, RttEstimator.WINDOW + 10, 5);
+        for (int i = 0; i < 10; i++) {
+            estimator.backoff(estimator.getTimeout());
+        }
+        assertEquals(3000, estimator.getTimeout());
+        assertEquals(0, estimator.getRetries());
+    }
+}
@@ -0,0 +1,149 @@
+package de.tub.sense.daq.modbus;
+
+import de.tub.sense.daq.config.xml.HardwareAddress;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the open addressing table mapping tag ids to slots and of the raw words kept per slot
+ *
+ * @created 18/10/2026 - 10:15
+ * @project DAQConfigLoader
+ */
+
+public class TagStateStoreTest {
+
+    private static TagCodec codec(int startAddress) {
+        return TagCodec.of(new HardwareAddress(startAddress, 1, "holding", 0, 1, 0, 0), "java.lang.Short").get();
+    }
+
+    @Test
+    public void registerAssignsDenseSlots() {
+        TagStateStore store = new TagStateStore();
+        assertEquals(0, store.register(1001, codec(0)));
+        assertEquals(1, store.register(1002, codec(1)));
+        assertEquals(2, store.register(7, codec(2)));
+        assertEquals(3, store.size());
+        assertEquals(1, store.slotOf(1002));
+        assertEquals(7, store.getTagId(2));
+    }
+
+    @Test
+    public void unknownTagHasNoSlot() {
+        TagStateStore store = new TagStateStore();
+        assertEquals(-1, store.slotOf(1));
+        store.register(1, codec(0));
+        assertEquals(-1, store.slotOf(2));
+        assertEquals(-1, store.slotOf(0));
+    }
+
+    @Test
+    public void reRegisterKeepsSlotAndReplacesCodec() {
+        TagStateStore store = new TagStateStore();
+        store.register(1, codec(0));
+        int slot = store.register(2, codec(1));
+        store.publishBits(slot, 42, 1000);
+        TagCodec replaced = codec(5);
+        assertEquals(slot, store.register(2, replaced));
+        assertEquals(2, store.size());
+        assertSame(replaced, store.getCodec(slot));
+        assertEquals(42, store.getLastBits(slot));
+        assertTrue(store.hasValue(slot));
+    }
+
+    @Test
+    public void growKeepsSlotsAndState() {
+        TagStateStore store = new TagStateStore();
+        List<TagCodec> codecs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            TagCodec codec = codec(i % 100);
+            codecs.add(codec);
+            assertEquals(i, store.register(10_000L + i * 31L, codec));
+            if (i % 3 == 0) {
+                store.publishBits(i, i * 2L, 1000 + i);
+            }
+        }
+        assertEquals(1000, store.size());
+        for (int i = 0; i < 1000; i++) {
+            int slot = store.slotOf(10_000L + i * 31L);
+            assertEquals(i, slot);
+            assertSame(codecs.get(i), store.getCodec(slot));
+            assertEquals(i % 3 == 0, store.hasValue(slot));
+            if (i % 3 == 0) {
+                assertEquals(i * 2L, store.getLastBits(slot));
+                assertEquals(1000 + i, store.getPublishedAt(slot));
+            }
+        }
+        assertEquals(-1, store.slotOf(10_001L));
+    }
+
+    @Test
+    public void collidingTagIdsGetTheirOwnSlots() {
+        TagStateStore store = new TagStateStore();
+        List<Long> colliding = new ArrayList<>();
+        int bucket = TagStateStore.hash(1) & 31;
+        for (long tagId = 1; colliding.size() < 6; tagId++) {
+            if ((TagStateStore.hash(tagId) & 31) == bucket) {
+                colliding.add(tagId);
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, store.register(colliding.get(i), codec(i)));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, store.slotOf(colliding.get(i)));
+        }
+        assertEquals(-1, store.slotOf(colliding.get(5)));
+        assertEquals(2, store.register(colliding.get(2), codec(9)));
+        assertEquals(5, store.size());
+    }
+
+    @Test
+    public void rawWordsAreComparedUntilTheNextPublication() {
+        TagStateStore store = new TagStateStore();
+        int slot = store.register(1, codec(0));
+        int[] words = {7, 0x1234, 0xFFFF, 9};
+        store.rememberRawWords(slot, words, 1, 2);
+        assertFalse(store.isRawUnchanged(slot, words, 1, 2));
+        store.publishBits(slot, 0x1234FFFFL, 1000);
+        store.rememberRawWords(slot, words, 1, 2);
+        assertTrue(store.isRawUnchanged(slot, new int[]{0x1234, 0xFFFF}, 0, 2));
+        assertFalse(store.isRawUnchanged(slot, new int[]{0x1234, 0xFFFE}, 0, 2));
+        assertFalse(store.isRawUnchanged(slot, new int[]{0x1235, 0xFFFF}, 0, 2));
+        store.publishBits(slot, 1, 2000);
+        assertFalse(store.isRawUnchanged(slot, words, 1, 2));
+    }
+
+    @Test
+    public void rawWordsOfLongTagsAreNotKept() {
+        TagStateStore store = new TagStateStore();
+        int slot = store.register(1, codec(0));
+        int[] words = {1, 2, 3, 4, 5};
+        store.publishBits(slot, 1, 1000);
+        store.rememberRawWords(slot, words, 0, 5);
+        assertFalse(store.isRawUnchanged(slot, words, 0, 5));
+        store.rememberRawWords(slot, words, 0, 4);
+        assertTrue(store.isRawUnchanged(slot, words, 0, 4));
+    }
+
+    @Test
+    public void extremeTagIds() {
+        TagStateStore store = new TagStateStore();
+        assertEquals(0, store.register(0, codec(0)));
+        assertEquals(1, store.register(Long.MIN_VALUE, codec(1)));
+        assertEquals(2, store.register(Long.MAX_VALUE, codec(2)));
+        assertEquals(3, store.register(-1, codec(3)));
+        assertEquals(0, store.slotOf(0));
+        assertEquals(1, store.slotOf(Long.MIN_VALUE));
+        assertEquals(2, store.slotOf(Long.MAX_VALUE));
+        assertEquals(3, store.slotOf(-1));
+        assertFalse(store.hasValue(0));
+    }
+}